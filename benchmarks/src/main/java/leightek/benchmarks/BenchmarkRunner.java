@@ -0,0 +1,42 @@
+package leightek.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line, e.g.
+ * <pre>java -jar benchmarks/target/benchmarks.jar DijkstraBenchmark -p graph=sparse:1000</pre>
+ * and always attaches the GC profiler so every result reports the allocation rate next to the timing. The listing
+ * and help options ({@code -l}, {@code -lp}, {@code -h}) are answered without running anything.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        if (cmdOptions.shouldHelp()) {
+            cmdOptions.showHelp();
+            return;
+        }
+        if (cmdOptions.shouldList()) {
+            new Runner(cmdOptions).list();
+            return;
+        }
+        if (cmdOptions.shouldListWithParams()) {
+            new Runner(cmdOptions).listWithParams(cmdOptions);
+            return;
+        }
+
+        Options options = new OptionsBuilder()
+                .parent(cmdOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
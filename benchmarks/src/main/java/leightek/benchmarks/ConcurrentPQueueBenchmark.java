@@ -0,0 +1,75 @@
+package leightek.benchmarks;
+
+import leightek.datastructure.pq.ConcurrentMultiQueue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on {@link ConcurrentMultiQueue} against {@link PriorityBlockingQueue}: every thread adds a random element
+ * and polls one, on a queue kept at its initial size, the steady state of a scheduler fed and drained by the same
+ * threads. The thread count is the JMH -t option, or run the main method to go through 1 to 64 threads:
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar leightek.benchmarks.ConcurrentPQueueBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentPQueueBenchmark {
+
+    static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"100000"})
+    public int size;
+
+    private ConcurrentMultiQueue<Integer> multiQueue;
+    private PriorityBlockingQueue<Integer> blockingQueue;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        multiQueue = new ConcurrentMultiQueue<>(params.getThreads());
+        blockingQueue = new PriorityBlockingQueue<>(size);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            int elem = random.nextInt(size);
+            multiQueue.add(elem);
+            blockingQueue.add(elem);
+        }
+    }
+
+    @Benchmark
+    public Integer multiQueue() {
+        multiQueue.add(ThreadLocalRandom.current().nextInt(size));
+        return multiQueue.poll();
+    }
+
+    @Benchmark
+    public Integer priorityBlockingQueue() {
+        blockingQueue.add(ThreadLocalRandom.current().nextInt(size));
+        return blockingQueue.poll();
+    }
+
+    /**
+     * Run both queues at every thread count in THREADS
+     */
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentPQueueBenchmark.class.getName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.DeltaSteppingShortestPath;
+import leightek.graphtheory.StaticGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-source runs of {@link DeltaSteppingShortestPath} on a fork-join pool of a growing size, to be compared with
+ * {@code DijkstraBenchmark.singleSource} on the same graphs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class DeltaSteppingBenchmark {
+
+    static final int QUERIES = 16; // number of distinct random start nodes cycled through
+
+    @Param({"sparse:1000000", "sparse:10000000"})
+    public String graph;
+
+    @Param({"1", "4", "16", "64"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private DeltaSteppingShortestPath solver;
+    private int[] starts;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GraphGenerator g = GraphGenerator.generate(graph, 100, 42);
+        StaticGraph csr = g.toDijkstra().getCsrGraph();
+        pool = new ForkJoinPool(threads);
+        solver = new DeltaSteppingShortestPath(csr, 0, pool);
+
+        Random random = new Random(7);
+        starts = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++)
+            starts[i] = random.nextInt(g.n);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double[] singleSource() {
+        return solver.solve(starts[query++ & (QUERIES - 1)]);
+    }
+}
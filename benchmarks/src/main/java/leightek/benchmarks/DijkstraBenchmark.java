@@ -0,0 +1,71 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.BidirectionalDijkstra;
+import leightek.graphtheory.DijkstraQueryContext;
+import leightek.graphtheory.DijkstrasShortestPathWithDHeap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-to-point and single-source runs of {@link DijkstrasShortestPathWithDHeap} on sparse and dense random graphs,
+ * with each queue engine (the weights are integers, so all of them apply).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class DijkstraBenchmark {
+
+    static final int QUERIES = 64; // number of distinct random queries cycled through
+
+    @Param({"sparse:1000", "sparse:100000", "sparse:10000000", "dense:1000", "dense:10000"})
+    public String graph;
+
+    @Param({"D_HEAP", "PAIRING_HEAP", "FIBONACCI_HEAP", "RADIX_HEAP", "BUCKET_QUEUE"})
+    public String engine;
+
+    private DijkstrasShortestPathWithDHeap solver;
+    private BidirectionalDijkstra bidirectional;
+    private int n;
+    private int[] starts, ends;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GraphGenerator g = GraphGenerator.generate(graph, 100, 42);
+        n = g.n;
+        solver = g.toDijkstra();
+        solver.setEngine(DijkstraQueryContext.Engine.valueOf(engine));
+        bidirectional = new BidirectionalDijkstra(solver.getCsrGraph());
+
+        Random random = new Random(7);
+        starts = new int[QUERIES];
+        ends = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = random.nextInt(n);
+            ends[i] = random.nextInt(n);
+        }
+    }
+
+    @Benchmark
+    public double pointToPoint() {
+        int i = query++ & (QUERIES - 1);
+        return solver.dijkstra(starts[i], ends[i]);
+    }
+
+    @Benchmark
+    public double bidirectionalPointToPoint() {
+        int i = query++ & (QUERIES - 1);
+        return bidirectional.dijkstra(starts[i], ends[i]);
+    }
+
+    @Benchmark
+    public double singleSource() {
+        int i = query++ & (QUERIES - 1);
+        return solver.dijkstra(starts[i], -1); // no node has index -1, so the whole reachable graph is settled
+    }
+}
@@ -0,0 +1,66 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.BlockedFloydWarshall;
+import leightek.graphtheory.FloydWarshallSolver;
+import leightek.graphtheory.JohnsonsAPSPSolver;
+import leightek.graphtheory.StaticGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All pairs shortest paths with {@link FloydWarshallSolver}, and with {@link BlockedFloydWarshall} and
+ * {@link JohnsonsAPSPSolver} on the common pool. The cubic cost limits the sizes to a few thousand nodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FloydWarshallBenchmark {
+
+    @Param({"sparse:100", "sparse:1000", "sparse:2000", "dense:100", "dense:1000", "dense:2000"})
+    public String graph;
+
+    private double[][] matrix;
+    private StaticGraph csr;
+    private FloydWarshallSolver solver;
+    private BlockedFloydWarshall blocked;
+    private JohnsonsAPSPSolver johnson;
+
+    @Setup(Level.Trial)
+    public void setUpGraph() {
+        GraphGenerator g = GraphGenerator.generate(graph, 100, 42);
+        matrix = g.toMatrix();
+        csr = g.toDijkstra().getCsrGraph();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpSolver() {
+        solver = new FloydWarshallSolver(matrix); // the solver caches its result, so every run needs a new one
+
+        int n = matrix.length;
+        double[] flat = new double[n * n];
+        for (int i = 0; i < n; i++)
+            System.arraycopy(matrix[i], 0, flat, i * n, n);
+        blocked = new BlockedFloydWarshall(flat, n, BlockedFloydWarshall.DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+        johnson = new JohnsonsAPSPSolver(csr);
+    }
+
+    @Benchmark
+    public double[][] apspMatrix() {
+        return solver.getAPSPMatrix();
+    }
+
+    @Benchmark
+    public double[] blockedApspMatrix() {
+        return blocked.solve();
+    }
+
+    @Benchmark
+    public double[][] johnsonApspMatrix() {
+        return johnson.getAPSPMatrix();
+    }
+}
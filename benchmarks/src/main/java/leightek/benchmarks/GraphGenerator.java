@@ -0,0 +1,77 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.DijkstrasShortestPathWithDHeap;
+import leightek.graphtheory.FloydWarshallSolver;
+
+import java.util.Random;
+
+/**
+ * Synthetic directed graphs for the benchmarks, kept as flat edge arrays so the same graph can be fed to every
+ * solver. A graph is described by a spec "shape:nodes", e.g. "sparse:100000" or "dense:1000".
+ */
+public final class GraphGenerator {
+
+    static final int SPARSE_DEGREE = 4; // average out degree of a sparse graph
+    static final int DENSE_DIVISOR = 10; // a dense graph connects each node to about n / 10 other nodes
+
+    public final int n;
+    public final int m;
+    public final int[] from, to, cost;
+
+    private GraphGenerator(int n, int m, int maxCost, long seed) {
+        this.n = n;
+        this.m = m;
+        from = new int[m];
+        to = new int[m];
+        cost = new int[m];
+
+        Random random = new Random(seed);
+        for (int i = 0; i < m; i++) {
+            from[i] = random.nextInt(n);
+            to[i] = random.nextInt(n);
+            cost[i] = 1 + random.nextInt(maxCost);
+        }
+    }
+
+    /**
+     * Generate a random graph from a spec
+     * @param spec  "sparse:n" for an average out degree of 4, or "dense:n" for an average out degree of n / 10
+     * @param maxCost  edge costs are drawn uniformly from [1, maxCost]
+     * @param seed  random seed, the same seed always gives the same graph
+     * @return the generated graph
+     */
+    public static GraphGenerator generate(String spec, int maxCost, long seed) {
+        String[] parts = spec.split(":");
+        if (parts.length != 2)
+            throw new IllegalArgumentException("Graph spec must look like shape:nodes; received: " + spec);
+
+        int n = Integer.parseInt(parts[1]);
+        long m;
+        if ("sparse".equals(parts[0]))
+            m = (long) n * SPARSE_DEGREE;
+        else if ("dense".equals(parts[0]))
+            m = (long) n * Math.max(1, n / DENSE_DIVISOR);
+        else
+            throw new IllegalArgumentException("Unknown graph shape; received: " + parts[0]);
+
+        if (m > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many edges for graph spec: " + spec);
+        return new GraphGenerator(n, (int) m, maxCost, seed);
+    }
+
+    public DijkstrasShortestPathWithDHeap toDijkstra() {
+        DijkstrasShortestPathWithDHeap solver = new DijkstrasShortestPathWithDHeap(n);
+        for (int i = 0; i < m; i++)
+            solver.addEdge(from[i], to[i], cost[i]);
+        return solver;
+    }
+
+    public double[][] toMatrix() {
+        double[][] matrix = FloydWarshallSolver.createGraph(n);
+        for (int i = 0; i < m; i++) {
+            if (from[i] != to[i])
+                matrix[from[i]][to[i]] = Math.min(matrix[from[i]][to[i]], cost[i]);
+        }
+        return matrix;
+    }
+}
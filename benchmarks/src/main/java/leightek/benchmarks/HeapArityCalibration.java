@@ -0,0 +1,121 @@
+package leightek.benchmarks;
+
+import leightek.datastructure.pq.DHeapArity;
+import leightek.datastructure.pq.MinIndexedDoubleDHeap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calibrates the degree of {@link MinIndexedDoubleDHeap} for a workload. The benchmark keeps a heap full and runs
+ * the shape of a Dijkstra search on it: poll the minimum, decrease a number of random keys to values above it, and
+ * insert the polled key back, for every degree in [2, 8]. Run through its main method it prints the fastest degree as
+ * the system property {@link DHeapArity} reads, next to the degree the model picks:
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar leightek.benchmarks.HeapArityCalibration dijkstra 1000000 1.6
+ * </pre>
+ * The decrease/poll ratio of a solver can be read off its heap with getDecreaseCount() / getPollCount().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeapArityCalibration {
+
+    static final int OPS = 1 << 16; // polls per invocation
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1.0"})
+    public double decreasesPerPoll;
+
+    @Param({"2", "3", "4", "5", "6", "7", "8"})
+    public int degree;
+
+    private MinIndexedDoubleDHeap heap;
+    private long seed = 42; // the state of the xorshift generator, cheaper than Random inside the timed loop
+    private double pending; // the fractional decreases carried over to the next poll
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        heap = new MinIndexedDoubleDHeap(degree, size);
+        for (int ki = 0; ki < size; ki++)
+            heap.insert(ki, nextDouble() * size);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public double pollAndDecrease() {
+        double sum = 0;
+        for (int op = 0; op < OPS; op++) {
+            double min = heap.peekMinValue();
+            int polled = heap.pollMinKeyIndex();
+            sum += min;
+
+            for (pending += decreasesPerPoll; pending >= 1; pending--) {
+                int ki = (int) (nextLong() % size);
+                if (heap.contains(ki)) {
+                    double value = heap.valueOf(ki);
+                    heap.decrease(ki, min + (value - min) * nextDouble());
+                }
+            }
+            heap.insert(polled, min + nextDouble() * size); // keep the heap full
+        }
+        return sum;
+    }
+
+    private long nextLong() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return seed >>> 1;
+    }
+
+    private double nextDouble() {
+        return (nextLong() >>> 10) * 0x1.0p-53;
+    }
+
+    /**
+     * Run the calibration
+     * @param args the workload name, the heap size and the decrease/poll ratio
+     */
+    public static void main(String[] args) throws RunnerException {
+        if (args.length != 3) {
+            System.err.println("Usage: HeapArityCalibration <workload> <size> <decreasesPerPoll>");
+            System.exit(1);
+        }
+        String workload = args[0];
+        int size = Integer.parseInt(args[1]);
+        double decreasesPerPoll = Double.parseDouble(args[2]);
+
+        Options options = new OptionsBuilder()
+                .include(HeapArityCalibration.class.getName() + ".pollAndDecrease")
+                .param("size", String.valueOf(size))
+                .param("decreasesPerPoll", String.valueOf(decreasesPerPoll))
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        int best = -1;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (RunResult result : results) {
+            double score = result.getPrimaryResult().getScore();
+            if (score < bestScore) {
+                bestScore = score;
+                best = Integer.parseInt(result.getParams().getParam("degree"));
+            }
+        }
+
+        System.out.printf("fastest degree %d (%.1f ns per poll), the model picks %d%n", best, bestScore,
+                DHeapArity.degree(workload, size, decreasesPerPoll));
+        System.out.println("-D" + DHeapArity.PROPERTY + "." + workload + "=" + best);
+    }
+}
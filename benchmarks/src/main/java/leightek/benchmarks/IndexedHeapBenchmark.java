@@ -0,0 +1,75 @@
+package leightek.benchmarks;
+
+import leightek.datastructure.pq.IndexedDoubleHeap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The D-ary, pairing and Fibonacci heaps behind {@link IndexedDoubleHeap} on the shape of a Dijkstra search, as in
+ * {@link HeapArityCalibration}: poll the minimum, decrease a number of random keys to values above it, and insert the
+ * polled key back. The decrease/poll ratio decides the winner, sparse graphs sit around 1 and dense ones go up to
+ * ln(n / 10); {@link PrimsBenchmark} and the heap engines of {@code DijkstraBenchmark} run the heaps on real graphs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexedHeapBenchmark {
+
+    static final int OPS = 1 << 16; // polls per invocation
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"0.5", "2", "8", "32"})
+    public double decreasesPerPoll;
+
+    @Param({"D_ARY", "PAIRING", "FIBONACCI"})
+    public String kind;
+
+    private IndexedDoubleHeap heap;
+    private long seed = 42; // the state of the xorshift generator, cheaper than Random inside the timed loop
+    private double pending; // the fractional decreases carried over to the next poll
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        heap = IndexedDoubleHeap.Kind.valueOf(kind).create(4, size);
+        for (int ki = 0; ki < size; ki++)
+            heap.insert(ki, nextDouble() * size);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPS)
+    public double pollAndDecrease() {
+        double sum = 0;
+        for (int op = 0; op < OPS; op++) {
+            double min = heap.peekMinValue();
+            int polled = heap.pollMinKeyIndex();
+            sum += min;
+
+            for (pending += decreasesPerPoll; pending >= 1; pending--) {
+                int ki = (int) (nextLong() % size);
+                if (heap.contains(ki)) {
+                    double value = heap.valueOf(ki);
+                    heap.decrease(ki, min + (value - min) * nextDouble());
+                }
+            }
+            heap.insert(polled, min + nextDouble() * size); // keep the heap full
+        }
+        return sum;
+    }
+
+    private long nextLong() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return seed >>> 1;
+    }
+
+    private double nextDouble() {
+        return (nextLong() >>> 10) * 0x1.0p-53;
+    }
+}
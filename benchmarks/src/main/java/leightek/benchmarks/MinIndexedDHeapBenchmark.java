@@ -0,0 +1,102 @@
+package leightek.benchmarks;
+
+import leightek.datastructure.pq.MinIndexedDHeap;
+import leightek.datastructure.pq.MinIndexedDoubleDHeap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert-heavy, decrease-key-heavy and poll-heavy workloads on the indexed D-ary heaps, the boxed
+ * {@link MinIndexedDHeap} side by side with the primitive {@link MinIndexedDoubleDHeap}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinIndexedDHeapBenchmark {
+
+    static final int DECREASES_PER_KEY = 4;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"2", "4", "8"})
+    public int degree;
+
+    private double[] values; // the initial value of each key index
+    private int[] decreaseKeys; // key indexes to decrease, in order
+    private double[] decreaseDeltas; // the amount every decrease subtracts
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        values = new double[size];
+        for (int i = 0; i < size; i++)
+            values[i] = random.nextDouble() * size;
+
+        decreaseKeys = new int[size * DECREASES_PER_KEY];
+        decreaseDeltas = new double[decreaseKeys.length];
+        for (int i = 0; i < decreaseKeys.length; i++) {
+            decreaseKeys[i] = random.nextInt(size);
+            decreaseDeltas[i] = random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public MinIndexedDHeap<Double> boxedInsertHeavy() {
+        MinIndexedDHeap<Double> heap = new MinIndexedDHeap<>(degree, size);
+        for (int ki = 0; ki < size; ki++)
+            heap.insert(ki, values[ki]);
+        return heap;
+    }
+
+    @Benchmark
+    public MinIndexedDHeap<Double> boxedDecreaseHeavy() {
+        MinIndexedDHeap<Double> heap = boxedInsertHeavy();
+        for (int i = 0; i < decreaseKeys.length; i++) {
+            int ki = decreaseKeys[i];
+            heap.decrease(ki, heap.valueOf(ki) - decreaseDeltas[i]);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public double boxedPollHeavy() {
+        MinIndexedDHeap<Double> heap = boxedInsertHeavy();
+        double sum = 0;
+        while (!heap.isEmpty())
+            sum += heap.pollMinValue();
+        return sum;
+    }
+
+    @Benchmark
+    public MinIndexedDoubleDHeap primitiveInsertHeavy() {
+        MinIndexedDoubleDHeap heap = new MinIndexedDoubleDHeap(degree, size);
+        for (int ki = 0; ki < size; ki++)
+            heap.insert(ki, values[ki]);
+        return heap;
+    }
+
+    @Benchmark
+    public MinIndexedDoubleDHeap primitiveDecreaseHeavy() {
+        MinIndexedDoubleDHeap heap = primitiveInsertHeavy();
+        for (int i = 0; i < decreaseKeys.length; i++) {
+            int ki = decreaseKeys[i];
+            heap.decrease(ki, heap.valueOf(ki) - decreaseDeltas[i]);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public double primitivePollHeavy() {
+        MinIndexedDoubleDHeap heap = primitiveInsertHeavy();
+        double sum = 0;
+        while (!heap.isEmpty())
+            sum += heap.pollMinValue();
+        return sum;
+    }
+}
@@ -0,0 +1,87 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.BlockedFloydWarshall;
+import leightek.graphtheory.FloydWarshallSolver;
+import leightek.graphtheory.MinPlus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The min-plus kernel on plain loops against the JDK Vector API: a min-plus matrix product, and the inner loop of
+ * {@link FloydWarshallSolver} and {@link BlockedFloydWarshall}. Every benchmark runs in two forks, one with the
+ * kernel forced to the scalar loops and one with the incubator module added, so the library must be built on
+ * JDK 17+ for the vector fork to differ (see the jdk17 profile) and the benchmarks need a JDK 17+ to start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class MinPlusBenchmark {
+
+    private static final String SCALAR = "-D" + MinPlus.PROPERTY + "=scalar";
+    private static final String VECTOR = "--add-modules=jdk.incubator.vector";
+
+    @Param({"dense:500", "dense:1000"})
+    public String graph;
+
+    private int n;
+    private double[] flat;
+    private double[][] matrix;
+    private FloydWarshallSolver solver;
+    private BlockedFloydWarshall blocked;
+
+    @Setup(Level.Trial)
+    public void setUpGraph() {
+        matrix = GraphGenerator.generate(graph, 100, 42).toMatrix();
+        n = matrix.length;
+        flat = new double[n * n];
+        for (int i = 0; i < n; i++)
+            System.arraycopy(matrix[i], 0, flat, i * n, n);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpSolver() {
+        solver = new FloydWarshallSolver(matrix); // the solvers cache their result, so every run needs a new one
+        blocked = new BlockedFloydWarshall(flat.clone(), n, BlockedFloydWarshall.DEFAULT_TILE_SIZE,
+                ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", SCALAR})
+    public double[] scalarMultiply() {
+        return MinPlus.multiply(flat, flat, n);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", VECTOR})
+    public double[] vectorMultiply() {
+        return MinPlus.multiply(flat, flat, n);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", SCALAR})
+    public double[][] scalarApspMatrix() {
+        return solver.getAPSPMatrix();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", VECTOR})
+    public double[][] vectorApspMatrix() {
+        return solver.getAPSPMatrix();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", SCALAR})
+    public double[] scalarBlockedApspMatrix() {
+        return blocked.solve();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", VECTOR})
+    public double[] vectorBlockedApspMatrix() {
+        return blocked.solve();
+    }
+}
@@ -0,0 +1,51 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.FordFulkersonAdjacencyList;
+import leightek.graphtheory.NetworkFlowBase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Max flow with the {@link NetworkFlowBase} solvers. The random graph gets a source wired to the first tenth of the
+ * nodes and a sink fed by the last tenth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class NetworkFlowBenchmark {
+
+    @Param({"sparse:1000", "sparse:10000", "dense:1000"})
+    public String graph;
+
+    private GraphGenerator g;
+    private NetworkFlowBase solver;
+
+    @Setup(Level.Trial)
+    public void setUpGraph() {
+        g = GraphGenerator.generate(graph, 10, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpSolver() {
+        int s = g.n, t = g.n + 1;
+        solver = new FordFulkersonAdjacencyList(g.n + 2, s, t); // the solver caches its result, so every run needs
+                                                               // a new one
+        for (int i = 0; i < g.m; i++)
+            solver.addEdge(g.from[i], g.to[i], g.cost[i]);
+
+        int terminals = Math.max(1, g.n / 10);
+        for (int i = 0; i < terminals; i++) {
+            solver.addEdge(s, i, 10);
+            solver.addEdge(g.n - 1 - i, t, 10);
+        }
+    }
+
+    @Benchmark
+    public long fordFulkerson() {
+        return solver.getMaxFlow();
+    }
+}
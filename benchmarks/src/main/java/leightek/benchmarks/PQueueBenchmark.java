@@ -0,0 +1,121 @@
+package leightek.benchmarks;
+
+import leightek.datastructure.pq.PQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert-heavy, poll-heavy and remove-heavy workloads on {@link PQueue}, with {@link PriorityQueue} as the baseline,
+ * plus a bulk addAll and a top-K ranking of the elements streamed through a bounded queue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PQueueBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    static final int K = 100; // the number of elements ranked by the top-K workloads
+
+    private Integer[] elems;
+    private List<Integer> batch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        elems = new Integer[size];
+        for (int i = 0; i < size; i++)
+            elems[i] = random.nextInt(size);
+        batch = Arrays.asList(elems);
+    }
+
+    @Benchmark
+    public PQueue<Integer> insertHeavy() {
+        PQueue<Integer> pq = new PQueue<>();
+        for (Integer elem : elems)
+            pq.add(elem);
+        return pq;
+    }
+
+    @Benchmark
+    public long pollHeavy() {
+        PQueue<Integer> pq = insertHeavy();
+        long sum = 0;
+        while (!pq.isEmpty())
+            sum += pq.poll();
+        return sum;
+    }
+
+    @Benchmark
+    public PQueue<Integer> removeHeavy() {
+        PQueue<Integer> pq = insertHeavy();
+        for (int i = 0; i < size; i += 2)
+            pq.remove(elems[i]);
+        return pq;
+    }
+
+    @Benchmark
+    public PQueue<Integer> heapifyConstructor() {
+        return new PQueue<>(elems);
+    }
+
+    @Benchmark
+    public PQueue<Integer> addAll() {
+        PQueue<Integer> pq = new PQueue<>();
+        pq.addAll(batch);
+        return pq;
+    }
+
+    @Benchmark
+    public PQueue<Integer> topK() {
+        PQueue<Integer> pq = PQueue.topK(K);
+        for (Integer elem : elems)
+            pq.add(elem);
+        return pq;
+    }
+
+    @Benchmark
+    public PriorityQueue<Integer> baselineInsertHeavy() {
+        PriorityQueue<Integer> pq = new PriorityQueue<>();
+        for (Integer elem : elems)
+            pq.add(elem);
+        return pq;
+    }
+
+    @Benchmark
+    public long baselinePollHeavy() {
+        PriorityQueue<Integer> pq = baselineInsertHeavy();
+        long sum = 0;
+        while (!pq.isEmpty())
+            sum += pq.poll();
+        return sum;
+    }
+
+    @Benchmark
+    public PriorityQueue<Integer> baselineRemoveHeavy() {
+        PriorityQueue<Integer> pq = baselineInsertHeavy();
+        for (int i = 0; i < size; i += 2)
+            pq.remove(elems[i]);
+        return pq;
+    }
+
+    @Benchmark
+    public PriorityQueue<Integer> baselineTopK() {
+        PriorityQueue<Integer> pq = new PriorityQueue<>(K + 1);
+        for (Integer elem : elems) {
+            pq.add(elem);
+            if (pq.size() > K)
+                pq.poll();
+        }
+        return pq;
+    }
+}
@@ -0,0 +1,47 @@
+package leightek.benchmarks;
+
+import leightek.datastructure.pq.IndexedDoubleHeap;
+import leightek.graphtheory.CsrGraph;
+import leightek.graphtheory.EagerPrimsMSTAdjacencyList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimum spanning trees of {@link EagerPrimsMSTAdjacencyList} on sparse and dense random graphs, made undirected,
+ * with each heap kind.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class PrimsBenchmark {
+
+    @Param({"sparse:100000", "sparse:1000000", "dense:1000", "dense:10000"})
+    public String graph;
+
+    @Param({"D_ARY", "PAIRING", "FIBONACCI"})
+    public String kind;
+
+    private CsrGraph csr;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GraphGenerator g = GraphGenerator.generate(graph, 100, 42);
+        CsrGraph.Builder builder = CsrGraph.builder(g.n, 2 * g.m);
+        for (int i = 0; i < g.m; i++) {
+            builder.addEdge(g.from[i], g.to[i], g.cost[i]);
+            builder.addEdge(g.to[i], g.from[i], g.cost[i]);
+        }
+        csr = builder.build();
+    }
+
+    @Benchmark
+    public Long minimumSpanningTree() {
+        EagerPrimsMSTAdjacencyList solver = new EagerPrimsMSTAdjacencyList(csr);
+        solver.setHeapKind(IndexedDoubleHeap.Kind.valueOf(kind));
+        return solver.getMstCost();
+    }
+}
@@ -0,0 +1,57 @@
+package leightek.benchmarks;
+
+import leightek.graphtheory.ShortestPathBatchService;
+import leightek.graphtheory.StaticGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batches of point-to-point queries answered by {@link ShortestPathBatchService} with a growing number of worker
+ * threads. Each operation is one batch, so the throughput per thread count shows how the service scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ShortestPathBatchBenchmark {
+
+    static final int BATCH = 256; // number of random queries per batch
+
+    @Param({"sparse:100000", "sparse:1000000"})
+    public String graph;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private ShortestPathBatchService service;
+    private int[] starts, ends;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GraphGenerator g = GraphGenerator.generate(graph, 100, 42);
+        StaticGraph csr = g.toDijkstra().getCsrGraph();
+        service = new ShortestPathBatchService(csr, threads);
+
+        Random random = new Random(7);
+        starts = new int[BATCH];
+        ends = new int[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            starts[i] = random.nextInt(g.n);
+            ends[i] = random.nextInt(g.n);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public double[] batch() {
+        return service.distances(starts, ends);
+    }
+}
@@ -0,0 +1,198 @@
+package leightek.datastructure.pq;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A relaxed concurrent min priority queue, the MultiQueue: the elements are spread over c * p binary heaps, p being
+ * the number of threads expected to use the queue, each guarded by its own lock.
+ *
+ * An add goes to a random heap. A poll looks at the minimum of two random heaps and removes the smaller one, so it
+ * returns an element close to the minimum rather than the minimum itself: on average its rank is O(c * p), which is
+ * what a scheduler draining the queue with p threads can tolerate. Locks are only tried, a thread finding a heap
+ * locked moves to another, so no thread waits behind another while an uncontended heap is left.
+ *
+ * poll returns null only after it found every heap empty, so it misses no element that was in the queue the whole
+ * time, but size is only exact while no thread is changing the queue.
+ */
+public class ConcurrentMultiQueue <T extends Comparable<T>> {
+
+    public static final int DEFAULT_STRIPES_PER_THREAD = 2; // c, more heaps lower contention but raise the rank error
+
+    private static final int TRIES = 8; // two-choice attempts before a poll scans every heap
+
+    private final Stripe[] stripes;
+
+    public ConcurrentMultiQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentMultiQueue(int parallelism) {
+        this(parallelism, DEFAULT_STRIPES_PER_THREAD);
+    }
+
+    public ConcurrentMultiQueue(int parallelism, int stripesPerThread) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism <= 0");
+        if (stripesPerThread <= 0)
+            throw new IllegalArgumentException("stripesPerThread <= 0");
+
+        stripes = new Stripe[Math.max(2, parallelism * stripesPerThread)];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /**
+     * Add an element to a random heap, the element must not be null, O(log(n / stripes))
+     * @param elem
+     */
+    public void add(T elem) {
+        if (elem == null)
+            throw new IllegalArgumentException();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            Stripe stripe = stripes[random.nextInt(stripes.length)];
+            if (stripe.tryLock()) {
+                try {
+                    stripe.add(elem);
+                    return;
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the smaller of the minimums of two random heaps, O(log(n / stripes))
+     * @return an element close to the minimum, or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < TRIES; attempt++) {
+            Stripe a = stripes[random.nextInt(stripes.length)];
+            Stripe b = stripes[random.nextInt(stripes.length)];
+            Stripe stripe = less(b.top, a.top) ? b : a;
+            if (stripe.top == null || !stripe.tryLock())
+                continue;
+            try {
+                if (stripe.size > 0)
+                    return (T) stripe.poll();
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return pollScan(random.nextInt(stripes.length));
+    }
+
+    public int size() {
+        long size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size;
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size > 0)
+                return false;
+        }
+        return true;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    // Helper functions
+
+    /**
+     * Poll the first non empty heap from a start, waiting for its lock, the fallback when random choices found
+     * nothing
+     * @param start
+     * @return the minimum of the first non empty heap, or null if every heap was empty when visited
+     */
+    @SuppressWarnings("unchecked")
+    private T pollScan(int start) {
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(start + i) % stripes.length];
+            if (stripe.size == 0)
+                continue;
+            stripe.lock();
+            try {
+                if (stripe.size > 0)
+                    return (T) stripe.poll();
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tests if a is smaller than b, null being larger than any element
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean less(Object a, Object b) {
+        if (a == null)
+            return false;
+        return b == null || ((Comparable) a).compareTo(b) < 0;
+    }
+
+    /**
+     * A binary heap under its own lock, publishing its size and minimum so the other threads can choose a heap
+     * without locking it
+     */
+    private static final class Stripe extends ReentrantLock {
+
+        private Object[] heap = new Object[16];
+        volatile int size;
+        volatile Object top; // the minimum of the heap, null if it is empty
+
+        void add(Object elem) {
+            int n = size;
+            if (n == heap.length)
+                heap = Arrays.copyOf(heap, n + (n >> 1));
+
+            // sift up with a hole, writing the element once
+            int k = n;
+            while (k > 0) {
+                int parent = (k - 1) / 2;
+                if (!less(elem, heap[parent]))
+                    break;
+                heap[k] = heap[parent];
+                k = parent;
+            }
+            heap[k] = elem;
+            size = n + 1;
+            top = heap[0];
+        }
+
+        Object poll() {
+            Object min = heap[0];
+            int n = size - 1;
+            Object last = heap[n];
+            heap[n] = null;
+
+            // sift the last element down from the root with a hole
+            if (n > 0) {
+                int k = 0;
+                for (int child = 1; child < n; child = 2 * k + 1) {
+                    if (child + 1 < n && less(heap[child + 1], heap[child]))
+                        child++;
+                    if (!less(heap[child], last))
+                        break;
+                    heap[k] = heap[child];
+                    k = child;
+                }
+                heap[k] = last;
+            }
+            size = n;
+            top = heap[0];
+            return min;
+        }
+    }
+}
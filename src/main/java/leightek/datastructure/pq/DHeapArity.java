@@ -0,0 +1,102 @@
+package leightek.datastructure.pq;
+
+/**
+ * The policy picking the degree D of the indexed D-ary heaps ({@link MinIndexedDHeap}, {@link MinIndexedDoubleDHeap})
+ * for a workload.
+ *
+ * A wider heap is shallower, log_D(n) levels, which makes decrease cheaper as it only compares with one parent per
+ * level, but a poll compares all D children on every level on its way down. The children of a node sit next to each
+ * other, so on a heap too large for the cache they cost one miss per cache line rather than one per child. The
+ * policy picks the D in [2, 8] minimizing
+ * <pre>
+ *   log_D(n) * (polls * (D + MISS * lines(D)) + decreases * (1 + MISS))
+ * </pre>
+ * for the decrease/poll ratio of the workload, lines(D) being the cache lines D heap slots span and MISS the cost of a
+ * miss in comparisons, 0 if the heap fits in the cache. Few decreases per poll give D = 3 or 4, many decreases or a
+ * heap larger than the cache push it up to 8.
+ *
+ * The model can be overridden with the system property {@code leightek.pq.degree}, or per workload with
+ * {@code leightek.pq.degree.<workload>}, e.g. {@code -Dleightek.pq.degree.dijkstra=4} as measured by the
+ * calibration benchmark in the benchmarks module.
+ */
+public final class DHeapArity {
+
+    public static final int MIN_DEGREE = 2;
+    public static final int MAX_DEGREE = 8;
+    public static final String PROPERTY = "leightek.pq.degree";
+
+    private static final int CACHE_LINE_BYTES = 64;
+    private static final int SLOT_BYTES = 2 * Long.BYTES; // a heap slot holds the value next to its key index
+    private static final long CACHE_BYTES = 256 * 1024; // about the size of L2, larger heaps miss on the lines read
+    private static final double MISS = 8; // the cost of a cache miss, in comparisons
+
+    private DHeapArity() {
+    }
+
+    /**
+     * Pick the degree of a heap
+     * @param workload           the name of the workload, for the per workload override, or null
+     * @param size               the maximum number of elements in the heap
+     * @param decreasesPerPoll   the expected number of decrease operations per poll
+     * @return the degree, in [MIN_DEGREE, MAX_DEGREE] unless overridden
+     */
+    public static int degree(String workload, int size, double decreasesPerPoll) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size <= 0");
+        if (!(decreasesPerPoll >= 0))
+            throw new IllegalArgumentException("Invalid decreases per poll; received: " + decreasesPerPoll);
+
+        int override = override(workload);
+        if (override != -1)
+            return override;
+
+        double miss = (long) size * SLOT_BYTES > CACHE_BYTES ? MISS : 0;
+        double logSize = Math.log(Math.max(2, size));
+        int best = MIN_DEGREE;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int d = MIN_DEGREE; d <= MAX_DEGREE; d++) {
+            int lines = (d * SLOT_BYTES + CACHE_LINE_BYTES - 1) / CACHE_LINE_BYTES;
+            double cost = logSize / Math.log(d) * (d + miss * lines + decreasesPerPoll * (1 + miss));
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Estimate the decrease/poll ratio of Dijkstra's or Prim's algorithm before running it: on a graph with random
+     * weights a node is decreased about ln(average degree) times before it is polled
+     * @param nodes   the number of nodes in the graph
+     * @param edges   the number of edges in the graph
+     * @return the expected decreases per poll
+     */
+    public static double estimateDecreasesPerPoll(int nodes, long edges) {
+        return Math.log1p((double) edges / Math.max(1, nodes));
+    }
+
+    /**
+     * Get the degree set by system property for a workload
+     * @return the degree, or -1 if not set
+     */
+    private static int override(String workload) {
+        String key = PROPERTY + "." + workload;
+        String value = workload != null ? System.getProperty(key) : null;
+        if (value == null) {
+            key = PROPERTY;
+            value = System.getProperty(key);
+        }
+        if (value == null)
+            return -1;
+
+        try {
+            int degree = Integer.parseInt(value.trim());
+            if (degree >= MIN_DEGREE)
+                return degree;
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException("Invalid heap degree in system property " + key + "; received: " + value);
+    }
+}
@@ -0,0 +1,308 @@
+package leightek.datastructure.pq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * An indexed min D-ary heap priority queue without a maximum size, for key indexes that arrive incrementally such as
+ * the node ids of a streaming graph. Same as {@link MinIndexedDHeap}, but any non negative key index
+ * can be inserted and the memory follows the live heap instead of the key universe.
+ *
+ * The heap arrays grow by half when full and shrink by half when a quarter full. The position map is paged: a page
+ * maps PAGE_SIZE consecutive key indexes and is only allocated while one of them is in the heap, so a few keys spread
+ * over a large universe cost a page each plus one directory slot per PAGE_SIZE key indexes up to the largest one seen.
+ * @param <T>
+ */
+public class GrowableMinIndexedDHeap <T extends Comparable<T>> {
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS; // the key indexes mapped by one page of the position map
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MIN_CAPACITY = 16;
+
+    private int sz; // current number of elements in the heap
+    private final int D; // the degree of every node in the heap
+    private int[][] pages = new int[0][]; // the paged Position Map, node position + 1 of each ki, 0 if not in the heap
+    private int[] pageCounts = new int[0]; // the number of key indexes in the heap on each page
+    private int[] im; // the Inverse Map maps node position [0, sz) to Key Indexes
+    private Object[] heapValues; // the values in heap order, heapValues[i] belongs to im[i]
+
+    public GrowableMinIndexedDHeap(int degree) {
+        D = max(2, degree);
+        im = new int[MIN_CAPACITY];
+        heapValues = new Object[MIN_CAPACITY];
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public int getDegree() {
+        return D;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    /**
+     * Remove all the keys and release the memory they held
+     */
+    public void clear() {
+        pages = new int[0][];
+        pageCounts = new int[0];
+        im = new int[MIN_CAPACITY];
+        heapValues = new Object[MIN_CAPACITY];
+        sz = 0;
+    }
+
+    /**
+     * Test if the heap contains the node with index ki
+     * @param ki  key index value
+     * @return true if exists or else false
+     */
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return positionOf(ki) != -1;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        return im[0];
+    }
+
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        delete(minki);
+        return minki;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T peekMinValue() {
+        isNotEmptyOrThrow();
+        return (T) heapValues[0];
+    }
+
+    public T pollMinValue() {
+        T minValue = peekMinValue();
+        delete(peekMinKeyIndex());
+        return minValue;
+    }
+
+    public void insert(int ki, T value) {
+        if (contains(ki))
+            throw new IllegalArgumentException("index already exists; received: " + ki);
+        valueNotNullOrThrow(value);
+        if (sz == im.length)
+            resize(im.length + (im.length >> 1));
+        addKey(ki);
+        siftUp(sz++, value, ki);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return (T) heapValues[positionOf(ki)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T delete(int ki) {
+        keyExistsOrThrow(ki);
+        final int i = positionOf(ki);
+        T value = (T) heapValues[i];
+        removeKey(ki);
+
+        // fill the hole with the last entry, which may belong above or below it
+        Object lastValue = heapValues[--sz];
+        int lastki = im[sz];
+        heapValues[sz] = null;
+        if (i != sz) {
+            if (less(lastValue, value))
+                siftUp(i, lastValue, lastki);
+            else
+                siftDown(i, lastValue, lastki);
+        }
+
+        if (sz < im.length / 4 && im.length > MIN_CAPACITY)
+            resize(max(MIN_CAPACITY, im.length / 2));
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T update(int ki, T value) {
+        keyExistsAndValueNotNullOrThrow(ki, value);
+        final int i = positionOf(ki);
+        T oldValue = (T) heapValues[i];
+        if (less(value, oldValue))
+            siftUp(i, value, ki);
+        else
+            siftDown(i, value, ki);
+        return oldValue;
+    }
+
+    /**
+     * Strictly decreases the value associated with 'ki' to 'value'
+     * @param ki
+     * @param value
+     */
+    public void decrease(int ki, T value) {
+        keyExistsAndValueNotNullOrThrow(ki, value);
+        final int i = positionOf(ki);
+        if (less(value, heapValues[i]))
+            siftUp(i, value, ki);
+    }
+
+    /**
+     * Strictly increases the value associated with 'ki' to 'value'
+     * @param ki
+     * @param value
+     */
+    public void increase(int ki, T value) {
+        keyExistsAndValueNotNullOrThrow(ki, value);
+        final int i = positionOf(ki);
+        if (less(heapValues[i], value))
+            siftDown(i, value, ki);
+    }
+
+    // Helper functions
+
+    /**
+     * Move the entry (value, ki) up from the hole at node i, pulling down the parents larger than it
+     */
+    private void siftUp(int i, Object value, int ki) {
+        while (i > 0) {
+            int parent = (i - 1) / D;
+            if (!less(value, heapValues[parent]))
+                break;
+            moveTo(parent, i);
+            i = parent;
+        }
+        place(i, value, ki);
+    }
+
+    /**
+     * Move the entry (value, ki) down from the hole at node i, pulling up the smallest child while it is smaller
+     */
+    private void siftDown(int i, Object value, int ki) {
+        for (int from = i * D + 1; from < sz; from = i * D + 1) {
+            int minChild = from;
+            for (int j = from + 1, to = min(sz, from + D); j < to; j++) {
+                if (less(heapValues[j], heapValues[minChild]))
+                    minChild = j;
+            }
+            if (!less(heapValues[minChild], value))
+                break;
+            moveTo(minChild, i);
+            i = minChild;
+        }
+        place(i, value, ki);
+    }
+
+    // move the entry at node 'from' to node 'to'
+    private void moveTo(int from, int to) {
+        heapValues[to] = heapValues[from];
+        int ki = im[from];
+        im[to] = ki;
+        pages[ki >>> PAGE_BITS][ki & PAGE_MASK] = to + 1;
+    }
+
+    private void place(int i, Object value, int ki) {
+        heapValues[i] = value;
+        im[i] = ki;
+        pages[ki >>> PAGE_BITS][ki & PAGE_MASK] = i + 1;
+    }
+
+    /**
+     * Get the node position of a key index
+     * @return the position, or -1 if ki is not in the heap
+     */
+    private int positionOf(int ki) {
+        int p = ki >>> PAGE_BITS;
+        if (p >= pages.length || pages[p] == null)
+            return -1;
+        return pages[p][ki & PAGE_MASK] - 1;
+    }
+
+    // make room for a new key index in the position map, allocating its page if needed
+    private void addKey(int ki) {
+        int p = ki >>> PAGE_BITS;
+        if (p >= pages.length) {
+            int length = max(p + 1, pages.length + (pages.length >> 1));
+            pages = Arrays.copyOf(pages, length);
+            pageCounts = Arrays.copyOf(pageCounts, length);
+        }
+        if (pages[p] == null)
+            pages[p] = new int[PAGE_SIZE];
+        pageCounts[p]++;
+    }
+
+    // remove a key index from the position map, releasing its page once the page is empty
+    private void removeKey(int ki) {
+        int p = ki >>> PAGE_BITS;
+        pages[p][ki & PAGE_MASK] = 0;
+        if (--pageCounts[p] == 0)
+            pages[p] = null;
+    }
+
+    private void resize(int capacity) {
+        im = Arrays.copyOf(im, capacity);
+        heapValues = Arrays.copyOf(heapValues, capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean less(Object obj1, Object obj2) {
+        return ((Comparable<? super T>) obj1).compareTo((T) obj2) < 0;
+    }
+
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        for (int i = 0; i < sz; i++)
+            lst.add(im[i]);
+        return lst.toString();
+    }
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty())
+            throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsAndValueNotNullOrThrow(int ki, Object value) {
+        keyExistsOrThrow(ki);
+        valueNotNullOrThrow(value);
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki))
+            throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueNotNullOrThrow(Object value) {
+        if (value == null)
+            throw new IllegalArgumentException("value cannot be null");
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0)
+            throw new IllegalArgumentException("Key index out of bound; received: " + ki);
+    }
+
+    // Test functions
+
+    public boolean isMinHeap() {
+        for (int i = 1; i < sz; i++) {
+            if (less(heapValues[i], heapValues[(i - 1) / D]))
+                return false;
+        }
+        for (int i = 0; i < sz; i++) {
+            if (positionOf(im[i]) != i)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package leightek.datastructure.pq;
+
+/**
+ * An indexed min priority queue on double values, the heap a solver keys its nodes by. The implementations trade the
+ * cost of a decrease against the cost of a poll, see {@link Kind}, so a solver running on this interface can be given
+ * the one suiting its graph.
+ */
+public interface IndexedDoubleHeap {
+
+    /**
+     * The implementations of the heap
+     */
+    enum Kind {
+        D_ARY, // MinIndexedDoubleDHeap, decrease and poll in O(log n), compact and cache friendly
+        PAIRING, // MinIndexedPairingHeap, decrease in o(log n) amortized and very cheap in practice, poll O(log n)
+        FIBONACCI; // MinIndexedFibonacciHeap, decrease in O(1) amortized, poll O(log n) amortized
+
+        /**
+         * Create an empty heap of this kind
+         * @param degree    the degree of a D_ARY heap, ignored by the others
+         * @param maxSize   the maximum number of elements in the heap, the key indexes are in [0, maxSize)
+         * @return the heap
+         */
+        public IndexedDoubleHeap create(int degree, int maxSize) {
+            switch (this) {
+                case PAIRING:
+                    return new MinIndexedPairingHeap(maxSize);
+                case FIBONACCI:
+                    return new MinIndexedFibonacciHeap(maxSize);
+                default:
+                    return new MinIndexedDoubleDHeap(degree, maxSize);
+            }
+        }
+    }
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * Remove all the keys
+     */
+    void clear();
+
+    /**
+     * Test if the heap contains the node with index ki
+     * @param ki  key index value
+     * @return true if exists or else false
+     */
+    boolean contains(int ki);
+
+    void insert(int ki, double value);
+
+    double valueOf(int ki);
+
+    /**
+     * Strictly decreases the value associated with 'ki' to 'value', nothing happens if it is not smaller
+     * @param ki
+     * @param value
+     */
+    void decrease(int ki, double value);
+
+    int peekMinKeyIndex();
+
+    double peekMinValue();
+
+    int pollMinKeyIndex();
+
+    double pollMinValue();
+}
@@ -0,0 +1,194 @@
+package leightek.datastructure.pq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of a monotone indexed bucket queue, the queue of Dial's algorithm. When the values in the queue
+ * never spread over more than C above the last minimum polled, which holds in Dijkstra's algorithm with integer
+ * weights up to C, a ring of C + 1 buckets holds one distinct value per bucket. Insert and decrease just move a key to
+ * the bucket of its value, and poll walks the ring forward to the next non empty bucket, so a search costs O(m + D)
+ * for a largest distance D. It is the fastest queue when C is small, for large C prefer {@link MinIndexedRadixHeap}.
+ *
+ * Every bucket is a doubly linked list threaded through arrays indexed by ki, so decrease is O(1).
+ */
+public class MinIndexedBucketQueue implements MonotoneIndexedQueue {
+
+    private int sz; // current number of elements in the queue
+    private final int N; // maximum number of elements in the queue
+    private final int C; // the largest value spread above the last minimum
+    private long last; // the last minimum polled, no value can go below it
+    private int cursor; // the bucket of the last minimum, last % (C + 1)
+    private final int[] head; // the first key index in each bucket, -1 if the bucket is empty
+    private final int[] next, prev; // the neighbours of each key index in its bucket list, -1 at the ends
+    private final int[] bucket; // the bucket of each key index, -1 if not in the queue
+    private final long[] values; // the values associated with the keys, the array is indexed by ki
+
+    public MinIndexedBucketQueue(int maxSpread, int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+        if (maxSpread < 0 || maxSpread == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid maxSpread; received: " + maxSpread);
+
+        N = maxSize;
+        C = maxSpread;
+        head = new int[C + 1];
+        next = new int[N];
+        prev = new int[N];
+        bucket = new int[N];
+        values = new long[N];
+
+        for (int i = 0; i <= C; i++)
+            head[i] = -1;
+        for (int i = 0; i < N; i++)
+            bucket[i] = -1;
+    }
+
+    @Override
+    public int size() {
+        return sz;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    /**
+     * Remove all the keys, O(size) rather than O(maxSize) so a queue can be reused across many small searches
+     */
+    @Override
+    public void clear() {
+        for (int b = cursor, seen = 0; seen < sz; b = b == C ? 0 : b + 1) {
+            for (int ki = head[b]; ki != -1; ki = next[ki]) {
+                bucket[ki] = -1;
+                seen++;
+            }
+            head[b] = -1;
+        }
+        sz = 0;
+        last = 0;
+        cursor = 0;
+    }
+
+    @Override
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return bucket[ki] != -1;
+    }
+
+    @Override
+    public void insert(int ki, long value) {
+        if (contains(ki))
+            throw new IllegalArgumentException("index already exists; received: " + ki);
+        valueInRangeOrThrow(value);
+        values[ki] = value;
+        link(ki, bucketOf(value));
+        sz++;
+    }
+
+    @Override
+    public long valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return values[ki];
+    }
+
+    @Override
+    public void decrease(int ki, long value) {
+        keyExistsOrThrow(ki);
+        valueInRangeOrThrow(value);
+        if (value < values[ki]) {
+            values[ki] = value;
+            unlink(ki);
+            link(ki, bucketOf(value));
+        }
+    }
+
+    @Override
+    public long peekMinValue() {
+        isNotEmptyOrThrow();
+        advance();
+        return last;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        advance();
+        return head[cursor];
+    }
+
+    @Override
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        unlink(minki);
+        bucket[minki] = -1;
+        sz--;
+        return minki;
+    }
+
+    // Helper functions
+
+    // walk the ring forward to the first non empty bucket, the queue must not be empty
+    private void advance() {
+        while (head[cursor] == -1) {
+            cursor = cursor == C ? 0 : cursor + 1;
+            last++;
+        }
+    }
+
+    // the values in the queue are within [last, last + C], so they map to distinct buckets
+    private int bucketOf(long value) {
+        int b = cursor + (int) (value - last);
+        return b > C ? b - C - 1 : b;
+    }
+
+    // push ki at the front of bucket b, it must not be linked in another bucket
+    private void link(int ki, int b) {
+        bucket[ki] = b;
+        prev[ki] = -1;
+        next[ki] = head[b];
+        if (head[b] != -1)
+            prev[head[b]] = ki;
+        head[b] = ki;
+    }
+
+    private void unlink(int ki) {
+        if (prev[ki] != -1)
+            next[prev[ki]] = next[ki];
+        else
+            head[bucket[ki]] = next[ki];
+        if (next[ki] != -1)
+            prev[next[ki]] = prev[ki];
+    }
+
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        for (int b = cursor, i = 0; i <= C; b = b == C ? 0 : b + 1, i++) {
+            for (int ki = head[b]; ki != -1; ki = next[ki])
+                lst.add(ki);
+        }
+        return lst.toString();
+    }
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty())
+            throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki))
+            throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueInRangeOrThrow(long value) {
+        if (value < last || value - last > C)
+            throw new IllegalArgumentException("value is out of the range [" + last + ", " + last + " + " + C
+                    + "]; received: " + value);
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bound; received: " + ki);
+    }
+}
@@ -9,6 +9,10 @@ import static java.lang.Math.min;
 
 /**
  * An implementation of an indexed min D-ary heap priority queue.
+ *
+ * The values are kept in heap order next to the key indexes, so the D children compared on the way down are read
+ * from consecutive slots instead of through the key indexes. The children and parent of a node are found by
+ * arithmetic, and a sift carries the moving entry in a hole, writing it once at its final node.
  * @param <T>
  */
 public class MinIndexedDHeap <T extends Comparable<T>> {
@@ -16,34 +20,41 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
     private int sz; // current number of elements in the heap
     private final int N; // maximum number of elements in the heap
     private final int D; // the degree of every node in the heap
-    private final int[] child, parent; // lookup array to track the child/parent indexes at each node
     public final int[] pm; // the Position Map maps Key Indexes (ki) to node position
     public final int[] im; // the Inverse Map maps node position [0, sz) to Key Indexes
-    public final Object[] values; // the values associated with the keys, the array is indexed by ki
+    private final Object[] heapValues; // the values in heap order, heapValues[i] belongs to im[i]
+    private long polls, decreases; // the number of delete and decrease operations, see DHeapArity
 
     public MinIndexedDHeap(int degreee, int maxSize) {
         if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
 
         D = max(2, degreee);
-        N = max(D + 1, maxSize);
+        N = maxSize;
 
-        child = new int[N];
-        parent = new int[N];
         pm = new int[N];
         im = new int[N];
-        values = new Object[N];
+        heapValues = new Object[N];
 
-        for (int i = 0; i < N; i++) {
-            parent[i] = (i - 1) / D;
-            child[i] = i * D + 1;
+        for (int i = 0; i < N; i++)
             pm[i] = im[i] = -1;
-        }
     }
 
     public int size() {
         return sz;
     }
 
+    public int getDegree() {
+        return D;
+    }
+
+    public long getPollCount() {
+        return polls;
+    }
+
+    public long getDecreaseCount() {
+        return decreases;
+    }
+
     public boolean isEmpty() {
         return  sz == 0;
     }
@@ -72,7 +83,7 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
     @SuppressWarnings("unchecked")
     public T peekMinValue() {
         isNotEmptyOrThrow();
-        return (T) values[im[0]];
+        return (T) heapValues[0];
     }
 
     public T pollMinValue() {
@@ -85,29 +96,34 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
         if (contains(ki))
             throw new IllegalArgumentException("index already exists; received: " + ki);
         valueNotNullOrThrow(value);
-        pm[ki] = sz;
-        im[sz] = ki;
-        values[ki] = value;
-        swim(sz++);
+        siftUp(sz++, value, ki);
     }
 
     @SuppressWarnings("unchecked")
     public T valueOf(int ki) {
         keyExistsOrThrow(ki);
-        return (T) values[ki];
+        return (T) heapValues[pm[ki]];
     }
 
     @SuppressWarnings("unchecked")
     public T delete(int ki) {
         keyExistsOrThrow(ki);
+        polls++;
         final int i = pm[ki];
-        swap(i, --sz);
-        sink(i);
-        swim(i);
-        T value = (T) values[ki];
-        values[ki] = null;
+        T value = (T) heapValues[i];
         pm[ki] = -1;
+
+        // fill the hole with the last entry, which may belong above or below it
+        Object lastValue = heapValues[--sz];
+        int lastki = im[sz];
+        heapValues[sz] = null;
         im[sz] = -1;
+        if (i != sz) {
+            if (less(lastValue, value))
+                siftUp(i, lastValue, lastki);
+            else
+                siftDown(i, lastValue, lastki);
+        }
         return value;
     }
 
@@ -115,10 +131,11 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
     public T update(int ki, T value) {
         keyExistsAndValueNotNullOrThrow(ki, value);
         final int i = pm[ki];
-        T oldValue = (T) values[ki];
-        values[ki] = value;
-        sink(i);
-        swim(i);
+        T oldValue = (T) heapValues[i];
+        if (less(value, oldValue))
+            siftUp(i, value, ki);
+        else
+            siftDown(i, value, ki);
         return oldValue;
     }
 
@@ -129,9 +146,10 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
      */
     public void decrease(int ki, T value) {
         keyExistsAndValueNotNullOrThrow(ki, value);
-        if (less(value, values[ki])) {
-            values[ki] = value;
-            swim(pm[ki]);
+        final int i = pm[ki];
+        if (less(value, heapValues[i])) {
+            decreases++;
+            siftUp(i, value, ki);
         }
     }
 
@@ -142,54 +160,57 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
      */
     public void increase(int ki, T value) {
         keyExistsAndValueNotNullOrThrow(ki, value);
-        if (less(values[ki], value)) {
-            values[ki] = value;
-            sink(pm[ki]);
-        }
+        final int i = pm[ki];
+        if (less(heapValues[i], value))
+            siftDown(i, value, ki);
     }
 
     // Helper functions
 
-    private void sink(int i) {
-        for (int j = minChild(i); j != -1;) {
-            swap(i, j);
-            i = j;
-            j = minChild(i);
-        }
-    }
-
-    private void swim(int i) {
-        while (less(i, parent[i])) {
-            swap(i, parent[i]);
-            i = parent[i];
+    /**
+     * Move the entry (value, ki) up from the hole at node i, pulling down the parents larger than it
+     */
+    private void siftUp(int i, Object value, int ki) {
+        while (i > 0) {
+            int parent = (i - 1) / D;
+            if (!less(value, heapValues[parent]))
+                break;
+            moveTo(parent, i);
+            i = parent;
         }
+        place(i, value, ki);
     }
 
     /**
-     * From the parent node at index i find the minimum child below it
-     * @param i
-     * @return
+     * Move the entry (value, ki) down from the hole at node i, pulling up the smallest child while it is smaller
      */
-    private int minChild(int i) {
-        int index = -1, from = child[i], to = min(sz, from +D);
-        for (int j = from; j < to; j++) {
-            if (less(j, i))
-                index = i = j;
+    private void siftDown(int i, Object value, int ki) {
+        for (int from = i * D + 1; from < sz; from = i * D + 1) {
+            int minChild = from;
+            for (int j = from + 1, to = min(sz, from + D); j < to; j++) {
+                if (less(heapValues[j], heapValues[minChild]))
+                    minChild = j;
+            }
+            if (!less(heapValues[minChild], value))
+                break;
+            moveTo(minChild, i);
+            i = minChild;
         }
-        return index;
+        place(i, value, ki);
     }
 
-    private void swap(int i, int j) {
-        pm[im[j]] = i;
-        pm[im[i]] = j;
-        int tmp = im[i];
-        im[i] = im[j];
-        im[j] = tmp;
+    // move the entry at node 'from' to node 'to'
+    private void moveTo(int from, int to) {
+        heapValues[to] = heapValues[from];
+        int ki = im[from];
+        im[to] = ki;
+        pm[ki] = to;
     }
 
-    @SuppressWarnings("unchecked")
-    private boolean less(int i, int j) {
-        return ((Comparable<? super  T>) values[im[i]]).compareTo((T) values[im[j]]) < 0;
+    private void place(int i, Object value, int ki) {
+        heapValues[i] = value;
+        im[i] = ki;
+        pm[ki] = i;
     }
 
     @SuppressWarnings("unchecked")
@@ -233,20 +254,14 @@ public class MinIndexedDHeap <T extends Comparable<T>> {
     // Test functions
 
     public boolean isMinHeap() {
-        return isMinHeap(0);
-    }
-
-    private boolean isMinHeap(int i) {
-        int from = child[i], to = min(sz, from + D);
-        for (int j = from; j < to; j++) {
-            if (!less(i, j))
+        for (int i = 1; i < sz; i++) {
+            if (less(heapValues[i], heapValues[(i - 1) / D]))
                 return false;
-            if (!isMinHeap(j))
+        }
+        for (int i = 0; i < sz; i++) {
+            if (pm[im[i]] != i)
                 return false;
         }
         return true;
     }
-
-
-
 }
@@ -0,0 +1,277 @@
+package leightek.datastructure.pq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * An implementation of an indexed min D-ary heap priority queue with primitive double values. Same as
+ * {@link MinIndexedDHeap} but the values are kept in a primitive array so no boxing happens on insert/decrease and
+ * the comparisons do not go through {@link Comparable}.
+ *
+ * Every heap node holds its value next to its key index in one long[], so the D children compared on the way down
+ * are read from consecutive memory instead of through the key indexes. The children and parent of a node are found
+ * by arithmetic, and a sift carries the moving entry in a hole: the entries it passes are moved by one node each and
+ * the moving entry is written once, at its final node.
+ */
+public class MinIndexedDoubleDHeap implements IndexedDoubleHeap {
+
+    private int sz; // current number of elements in the heap
+    private final int N; // maximum number of elements in the heap
+    private final int D; // the degree of every node in the heap
+    public final int[] pm; // the Position Map maps Key Indexes (ki) to node position, -1 if not in the heap
+    private final long[] heap; // node i holds the bits of its value at 2i and its key index at 2i + 1
+    private long polls, decreases; // the number of delete and decrease operations, see DHeapArity
+
+    public MinIndexedDoubleDHeap(int degree, int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        D = max(2, degree);
+        N = maxSize;
+
+        pm = new int[N];
+        heap = new long[2 * N];
+
+        for (int i = 0; i < N; i++)
+            pm[i] = -1;
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public int getDegree() {
+        return D;
+    }
+
+    public long getPollCount() {
+        return polls;
+    }
+
+    public long getDecreaseCount() {
+        return decreases;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    /**
+     * Remove all the keys, O(size) rather than O(maxSize) so a heap can be reused across many small searches
+     */
+    public void clear() {
+        for (int i = 0; i < sz; i++)
+            pm[keyAt(i)] = -1;
+        sz = 0;
+    }
+
+    /**
+     * Test if the heap contains the node with index ki
+     * @param ki  key index value
+     * @return true if exists or else false
+     */
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return pm[ki] != -1;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        return keyAt(0);
+    }
+
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        delete(minki);
+        return minki;
+    }
+
+    public double peekMinValue() {
+        isNotEmptyOrThrow();
+        return valueAt(0);
+    }
+
+    public double pollMinValue() {
+        double minValue = peekMinValue();
+        delete(peekMinKeyIndex());
+        return minValue;
+    }
+
+    public void insert(int ki, double value) {
+        if (contains(ki))
+            throw new IllegalArgumentException("index already exists; received: " + ki);
+        valueNotNaNOrThrow(value);
+        siftUp(sz++, value, ki);
+    }
+
+    public double valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return valueAt(pm[ki]);
+    }
+
+    public double delete(int ki) {
+        keyExistsOrThrow(ki);
+        polls++;
+        final int i = pm[ki];
+        double value = valueAt(i);
+        pm[ki] = -1;
+
+        // fill the hole with the last entry, which may belong above or below it
+        if (i != --sz) {
+            double lastValue = valueAt(sz);
+            int lastki = keyAt(sz);
+            if (lastValue < value)
+                siftUp(i, lastValue, lastki);
+            else
+                siftDown(i, lastValue, lastki);
+        }
+        return value;
+    }
+
+    public double update(int ki, double value) {
+        keyExistsAndValueNotNaNOrThrow(ki, value);
+        final int i = pm[ki];
+        double oldValue = valueAt(i);
+        if (value < oldValue)
+            siftUp(i, value, ki);
+        else
+            siftDown(i, value, ki);
+        return oldValue;
+    }
+
+    /**
+     * Strictly decreases the value associated with 'ki' to 'value'
+     * @param ki
+     * @param value
+     */
+    public void decrease(int ki, double value) {
+        keyExistsAndValueNotNaNOrThrow(ki, value);
+        final int i = pm[ki];
+        if (value < valueAt(i)) {
+            decreases++;
+            siftUp(i, value, ki);
+        }
+    }
+
+    /**
+     * Strictly increases the value associated with 'ki' to 'value'
+     * @param ki
+     * @param value
+     */
+    public void increase(int ki, double value) {
+        keyExistsAndValueNotNaNOrThrow(ki, value);
+        final int i = pm[ki];
+        if (valueAt(i) < value)
+            siftDown(i, value, ki);
+    }
+
+    // Helper functions
+
+    /**
+     * Move the entry (value, ki) up from the hole at node i, pulling down the parents larger than it
+     */
+    private void siftUp(int i, double value, int ki) {
+        while (i > 0) {
+            int parent = (i - 1) / D;
+            if (!(value < valueAt(parent)))
+                break;
+            moveTo(parent, i);
+            i = parent;
+        }
+        place(i, value, ki);
+    }
+
+    /**
+     * Move the entry (value, ki) down from the hole at node i, pulling up the smallest child while it is smaller
+     */
+    private void siftDown(int i, double value, int ki) {
+        for (int from = i * D + 1; from < sz; from = i * D + 1) {
+            int minChild = from;
+            double minValue = valueAt(from);
+            for (int j = from + 1, to = min(sz, from + D); j < to; j++) {
+                double childValue = valueAt(j);
+                if (childValue < minValue) {
+                    minChild = j;
+                    minValue = childValue;
+                }
+            }
+            if (!(minValue < value))
+                break;
+            moveTo(minChild, i);
+            i = minChild;
+        }
+        place(i, value, ki);
+    }
+
+    private double valueAt(int i) {
+        return Double.longBitsToDouble(heap[2 * i]);
+    }
+
+    private int keyAt(int i) {
+        return (int) heap[2 * i + 1];
+    }
+
+    // move the entry at node 'from' to node 'to'
+    private void moveTo(int from, int to) {
+        heap[2 * to] = heap[2 * from];
+        int ki = (int) heap[2 * from + 1];
+        heap[2 * to + 1] = ki;
+        pm[ki] = to;
+    }
+
+    private void place(int i, double value, int ki) {
+        heap[2 * i] = Double.doubleToRawLongBits(value);
+        heap[2 * i + 1] = ki;
+        pm[ki] = i;
+    }
+
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        for (int i = 0; i < sz; i++)
+            lst.add(keyAt(i));
+        return lst.toString();
+    }
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty())
+            throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsAndValueNotNaNOrThrow(int ki, double value) {
+        keyExistsOrThrow(ki);
+        valueNotNaNOrThrow(value);
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki))
+            throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueNotNaNOrThrow(double value) {
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("value cannot be NaN");
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bound; received: " + ki);
+    }
+
+    // Test functions
+
+    public boolean isMinHeap() {
+        for (int i = 1; i < sz; i++) {
+            if (valueAt(i) < valueAt((i - 1) / D))
+                return false;
+        }
+        for (int i = 0; i < sz; i++) {
+            if (pm[keyAt(i)] != i)
+                return false;
+        }
+        return true;
+    }
+}
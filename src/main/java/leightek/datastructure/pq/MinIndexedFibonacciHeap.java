@@ -0,0 +1,332 @@
+package leightek.datastructure.pq;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of an indexed min Fibonacci heap with primitive double values.
+ *
+ * The heap is a list of trees, the minimum being one of their roots. An insert adds a single node tree to the list and
+ * a decrease that breaks the heap order cuts the node's subtree to the list, marking the parent and cutting it too if
+ * it had already lost a child, both O(1) amortized. A poll moves the children of the minimum to the list and links
+ * the trees of equal degree until no two are left, O(log n) amortized. This gives Dijkstra's algorithm its
+ * O(m + n log n) bound, though the constant of a poll is larger than in a pairing or D-ary heap.
+ *
+ * The nodes are the key indexes themselves: the trees are kept in arrays indexed by ki, siblings in circular doubly
+ * linked lists, so nothing is allocated after construction.
+ */
+public class MinIndexedFibonacciHeap implements IndexedDoubleHeap {
+
+    private static final int MAX_DEGREE = 64; // above log_phi(Integer.MAX_VALUE), the largest degree a tree reaches
+
+    private int sz; // current number of elements in the heap
+    private final int N; // maximum number of elements in the heap
+    private int min = -1; // the key index of the minimum, a root, -1 if the heap is empty
+    private final double[] values; // the values associated with the keys, the array is indexed by ki
+    private final int[] parent, child; // the parent and any child of each ki, -1 if none
+    private final int[] left, right; // the siblings of each ki in its circular list
+    private final int[] degree; // the number of children of each ki
+    private final boolean[] marked; // whether each ki lost a child since it became a child itself
+    private final int[] stamps; // a key index is in the heap if its stamp is the current one
+    private int stamp = 1;
+    private final int[] byDegree = new int[MAX_DEGREE]; // the roots by degree while consolidating
+
+    public MinIndexedFibonacciHeap(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        N = maxSize;
+        values = new double[N];
+        parent = new int[N];
+        child = new int[N];
+        left = new int[N];
+        right = new int[N];
+        degree = new int[N];
+        marked = new boolean[N];
+        stamps = new int[N];
+        Arrays.fill(byDegree, -1);
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    /**
+     * Remove all the keys, O(1) by taking a new stamp
+     */
+    public void clear() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        min = -1;
+        sz = 0;
+    }
+
+    /**
+     * Test if the heap contains the node with index ki
+     * @param ki  key index value
+     * @return true if exists or else false
+     */
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return stamps[ki] == stamp;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        return min;
+    }
+
+    public int pollMinKeyIndex() {
+        final int z = peekMinKeyIndex();
+        stamps[z] = 0;
+        sz--;
+
+        // move the children of z to the root list
+        int c = child[z];
+        if (c != -1) {
+            int x = c;
+            do {
+                parent[x] = -1;
+                marked[x] = false;
+                x = right[x];
+            } while (x != c);
+            splice(z, c);
+        }
+
+        if (right[z] == z) {
+            min = -1;
+        } else {
+            int start = right[z];
+            unlink(z);
+            consolidate(start);
+        }
+        return z;
+    }
+
+    public double peekMinValue() {
+        isNotEmptyOrThrow();
+        return values[min];
+    }
+
+    public double pollMinValue() {
+        double minValue = peekMinValue();
+        pollMinKeyIndex();
+        return minValue;
+    }
+
+    public void insert(int ki, double value) {
+        if (contains(ki))
+            throw new IllegalArgumentException("index already exists; received: " + ki);
+        valueNotNaNOrThrow(value);
+        stamps[ki] = stamp;
+        values[ki] = value;
+        parent[ki] = child[ki] = -1;
+        degree[ki] = 0;
+        marked[ki] = false;
+        left[ki] = right[ki] = ki;
+        addRoot(ki);
+        sz++;
+    }
+
+    public double valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return values[ki];
+    }
+
+    /**
+     * Strictly decreases the value associated with 'ki' to 'value'
+     * @param ki
+     * @param value
+     */
+    public void decrease(int ki, double value) {
+        keyExistsOrThrow(ki);
+        valueNotNaNOrThrow(value);
+        if (!(value < values[ki]))
+            return;
+
+        values[ki] = value;
+        int p = parent[ki];
+        if (p != -1 && value < values[p]) {
+            cut(ki, p);
+            // cascading cut, a parent losing its second child is cut as well
+            for (int y = p, z = parent[y]; z != -1; y = z, z = parent[y]) {
+                if (!marked[y]) {
+                    marked[y] = true;
+                    break;
+                }
+                cut(y, z);
+            }
+        }
+        if (value < values[min])
+            min = ki;
+    }
+
+    // Helper functions
+
+    /**
+     * Add a single tree to the root list, updating the minimum
+     */
+    private void addRoot(int x) {
+        if (min == -1) {
+            left[x] = right[x] = x;
+            min = x;
+            return;
+        }
+        left[x] = min;
+        right[x] = right[min];
+        left[right[min]] = x;
+        right[min] = x;
+        if (values[x] < values[min])
+            min = x;
+    }
+
+    /**
+     * Cut x from the children of p and make it a root
+     */
+    private void cut(int x, int p) {
+        if (right[x] == x) {
+            child[p] = -1;
+        } else {
+            if (child[p] == x)
+                child[p] = right[x];
+            unlink(x);
+        }
+        degree[p]--;
+        parent[x] = -1;
+        marked[x] = false;
+        addRoot(x);
+    }
+
+    /**
+     * Link the roots of equal degree until every root has its own degree, then find the new minimum
+     * @param start  any root
+     */
+    private void consolidate(int start) {
+        int roots = 0;
+        int x = start;
+        do {
+            roots++;
+            x = right[x];
+        } while (x != start);
+
+        for (int w = start; roots-- > 0;) {
+            x = w;
+            w = right[w];
+            int d = degree[x];
+            for (int y; (y = byDegree[d]) != -1; d++) {
+                if (values[y] < values[x]) {
+                    int tmp = x;
+                    x = y;
+                    y = tmp;
+                }
+                // make y a child of x
+                unlink(y);
+                parent[y] = x;
+                marked[y] = false;
+                int c = child[x];
+                if (c == -1) {
+                    child[x] = y;
+                    left[y] = right[y] = y;
+                } else {
+                    left[y] = c;
+                    right[y] = right[c];
+                    left[right[c]] = y;
+                    right[c] = y;
+                }
+                degree[x]++;
+                byDegree[d] = -1;
+            }
+            byDegree[d] = x;
+        }
+
+        // the roots left are the ones in byDegree, rebuild the root list from them
+        min = -1;
+        for (int d = 0; d < MAX_DEGREE; d++) {
+            int r = byDegree[d];
+            if (r != -1) {
+                byDegree[d] = -1;
+                addRoot(r);
+            }
+        }
+    }
+
+    // remove x from its circular list
+    private void unlink(int x) {
+        right[left[x]] = right[x];
+        left[right[x]] = left[x];
+        left[x] = right[x] = x;
+    }
+
+    // join the circular list holding b into the one holding a, right after a
+    private void splice(int a, int b) {
+        int ra = right[a], lb = left[b];
+        right[a] = b;
+        left[b] = a;
+        right[lb] = ra;
+        left[ra] = lb;
+    }
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty())
+            throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki))
+            throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueNotNaNOrThrow(double value) {
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("value cannot be NaN");
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bound; received: " + ki);
+    }
+
+    // Test functions
+
+    /**
+     * Test the heap order, every node no smaller than its parent, and that the trees hold size nodes
+     */
+    public boolean isMinHeap() {
+        if (min == -1)
+            return sz == 0;
+        int count = 0, x = min;
+        do {
+            if (values[x] < values[min] || parent[x] != -1)
+                return false;
+            int sub = countIfOrdered(x);
+            if (sub == -1)
+                return false;
+            count += sub;
+            x = right[x];
+        } while (x != min);
+        return count == sz;
+    }
+
+    // the number of nodes in the subtree of ki, -1 if it breaks the heap order or the degree
+    private int countIfOrdered(int ki) {
+        int count = 1, children = 0, c = child[ki];
+        if (c != -1) {
+            do {
+                if (values[c] < values[ki] || parent[c] != ki)
+                    return -1;
+                int sub = countIfOrdered(c);
+                if (sub == -1)
+                    return -1;
+                count += sub;
+                children++;
+                c = right[c];
+            } while (c != child[ki]);
+        }
+        return children == degree[ki] ? count : -1;
+    }
+}
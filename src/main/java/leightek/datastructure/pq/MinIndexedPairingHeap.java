@@ -0,0 +1,234 @@
+package leightek.datastructure.pq;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of an indexed min pairing heap with primitive double values.
+ *
+ * The heap is a tree whose root is the minimum, each node keeping its children in a list. An insert or a decrease
+ * links a single node tree with the root, one comparison; a poll links the children of the root in pairs from left to
+ * right and then folds the pairs from right to left. A decrease costs O(1) in practice (o(log n) amortized in theory)
+ * against O(log n) in a D-ary heap, which pays off on the decrease heavy searches of dense graphs.
+ *
+ * The nodes are the key indexes themselves: the tree is kept in int arrays indexed by ki, so nothing is allocated
+ * after construction. A node's prev is its left sibling, or its parent if it is the first child.
+ */
+public class MinIndexedPairingHeap implements IndexedDoubleHeap {
+
+    private int sz; // current number of elements in the heap
+    private final int N; // maximum number of elements in the heap
+    private int root = -1; // the key index of the minimum, -1 if the heap is empty
+    private final double[] values; // the values associated with the keys, the array is indexed by ki
+    private final int[] child, next, prev; // the first child, right sibling and left sibling or parent of each ki
+    private final int[] stamps; // a key index is in the heap if its stamp is the current one
+    private int stamp = 1;
+
+    public MinIndexedPairingHeap(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        N = maxSize;
+        values = new double[N];
+        child = new int[N];
+        next = new int[N];
+        prev = new int[N];
+        stamps = new int[N];
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    /**
+     * Remove all the keys, O(1) by taking a new stamp
+     */
+    public void clear() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        root = -1;
+        sz = 0;
+    }
+
+    /**
+     * Test if the heap contains the node with index ki
+     * @param ki  key index value
+     * @return true if exists or else false
+     */
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return stamps[ki] == stamp;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        return root;
+    }
+
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        stamps[minki] = 0;
+        sz--;
+        root = combine(child[minki]);
+        return minki;
+    }
+
+    public double peekMinValue() {
+        isNotEmptyOrThrow();
+        return values[root];
+    }
+
+    public double pollMinValue() {
+        double minValue = peekMinValue();
+        pollMinKeyIndex();
+        return minValue;
+    }
+
+    public void insert(int ki, double value) {
+        if (contains(ki))
+            throw new IllegalArgumentException("index already exists; received: " + ki);
+        valueNotNaNOrThrow(value);
+        stamps[ki] = stamp;
+        values[ki] = value;
+        child[ki] = next[ki] = prev[ki] = -1;
+        root = root == -1 ? ki : link(root, ki);
+        sz++;
+    }
+
+    public double valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return values[ki];
+    }
+
+    /**
+     * Strictly decreases the value associated with 'ki' to 'value'
+     * @param ki
+     * @param value
+     */
+    public void decrease(int ki, double value) {
+        keyExistsOrThrow(ki);
+        valueNotNaNOrThrow(value);
+        if (!(value < values[ki]))
+            return;
+
+        values[ki] = value;
+        if (ki == root)
+            return;
+
+        // cut the subtree of ki from its parent and link it with the root
+        int p = prev[ki];
+        if (child[p] == ki)
+            child[p] = next[ki];
+        else
+            next[p] = next[ki];
+        if (next[ki] != -1)
+            prev[next[ki]] = p;
+        next[ki] = prev[ki] = -1;
+        root = link(root, ki);
+    }
+
+    // Helper functions
+
+    /**
+     * Make the larger of two roots the first child of the smaller one, the first one winning a tie
+     * @return the new root
+     */
+    private int link(int a, int b) {
+        if (values[b] < values[a]) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int first = child[a];
+        next[b] = first;
+        if (first != -1)
+            prev[first] = b;
+        prev[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    /**
+     * Combine a list of sibling trees into one, the two pass pairing
+     * @param first  the first tree of the list, -1 if it is empty
+     * @return the root of the combined tree, -1 if the list is empty
+     */
+    private int combine(int first) {
+        // first pass, link the trees in pairs from left to right, stacking the results in a list linked by next
+        int pairs = -1;
+        while (first != -1) {
+            int a = first;
+            int b = next[a];
+            first = b == -1 ? -1 : next[b];
+            next[a] = prev[a] = -1;
+            if (b != -1) {
+                next[b] = prev[b] = -1;
+                a = link(a, b);
+            }
+            next[a] = pairs;
+            pairs = a;
+        }
+        if (pairs == -1)
+            return -1;
+
+        // second pass, fold the pairs from the last one back to the first
+        int result = pairs;
+        pairs = next[result];
+        next[result] = -1;
+        while (pairs != -1) {
+            int a = pairs;
+            pairs = next[a];
+            next[a] = -1;
+            result = link(result, a);
+        }
+        return result;
+    }
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty())
+            throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki))
+            throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueNotNaNOrThrow(double value) {
+        if (Double.isNaN(value))
+            throw new IllegalArgumentException("value cannot be NaN");
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bound; received: " + ki);
+    }
+
+    // Test functions
+
+    /**
+     * Test the heap order, every node no smaller than its parent, and that the tree holds size nodes
+     */
+    public boolean isMinHeap() {
+        return root == -1 ? sz == 0 : countIfOrdered(root) == sz;
+    }
+
+    // the number of nodes in the subtree of ki, -1 if it breaks the heap order
+    private int countIfOrdered(int ki) {
+        int count = 1;
+        for (int c = child[ki]; c != -1; c = next[c]) {
+            if (values[c] < values[ki])
+                return -1;
+            int sub = countIfOrdered(c);
+            if (sub == -1)
+                return -1;
+            count += sub;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,206 @@
+package leightek.datastructure.pq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An implementation of a monotone indexed radix heap. A key with value v sits in bucket i, the position of the
+ * highest bit in which v differs from the last minimum polled (bucket 0 if equal). When bucket 0 runs empty the
+ * lowest non empty bucket is scanned for its minimum, which becomes the new last minimum, and its keys are spread into
+ * the lower buckets. A key only ever moves to lower buckets, so over its lifetime it is moved at most log C times for
+ * values spread over a range of C, giving O(m + n log C) for Dijkstra's algorithm without comparing keys on insert or
+ * decrease.
+ *
+ * Every bucket is a doubly linked list threaded through arrays indexed by ki, so decrease is O(1).
+ */
+public class MinIndexedRadixHeap implements MonotoneIndexedQueue {
+
+    private static final int BUCKETS = Long.SIZE + 1; // bucket 0 for the last minimum, then one per bit
+
+    private int sz; // current number of elements in the heap
+    private final int N; // maximum number of elements in the heap
+    private long last; // the last minimum polled, no value can go below it
+    private final int[] head; // the first key index in each bucket, -1 if the bucket is empty
+    private final int[] next, prev; // the neighbours of each key index in its bucket list, -1 at the ends
+    private final int[] bucket; // the bucket of each key index, -1 if not in the heap
+    private final long[] values; // the values associated with the keys, the array is indexed by ki
+
+    public MinIndexedRadixHeap(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        N = maxSize;
+        head = new int[BUCKETS];
+        next = new int[N];
+        prev = new int[N];
+        bucket = new int[N];
+        values = new long[N];
+
+        for (int i = 0; i < BUCKETS; i++)
+            head[i] = -1;
+        for (int i = 0; i < N; i++)
+            bucket[i] = -1;
+    }
+
+    @Override
+    public int size() {
+        return sz;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    /**
+     * Remove all the keys, O(size) rather than O(maxSize) so a heap can be reused across many small searches
+     */
+    @Override
+    public void clear() {
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int ki = head[b]; ki != -1; ki = next[ki])
+                bucket[ki] = -1;
+            head[b] = -1;
+        }
+        sz = 0;
+        last = 0;
+    }
+
+    @Override
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return bucket[ki] != -1;
+    }
+
+    @Override
+    public void insert(int ki, long value) {
+        if (contains(ki))
+            throw new IllegalArgumentException("index already exists; received: " + ki);
+        valueNotBelowLastOrThrow(value);
+        values[ki] = value;
+        link(ki, bucketOf(value));
+        sz++;
+    }
+
+    @Override
+    public long valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return values[ki];
+    }
+
+    @Override
+    public void decrease(int ki, long value) {
+        keyExistsOrThrow(ki);
+        valueNotBelowLastOrThrow(value);
+        if (value < values[ki]) {
+            values[ki] = value;
+            int b = bucketOf(value);
+            if (b != bucket[ki]) {
+                unlink(ki);
+                link(ki, b);
+            }
+        }
+    }
+
+    @Override
+    public long peekMinValue() {
+        isNotEmptyOrThrow();
+        refill();
+        return last;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        refill();
+        return head[0];
+    }
+
+    @Override
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        unlink(minki);
+        bucket[minki] = -1;
+        sz--;
+        return minki;
+    }
+
+    // Helper functions
+
+    /**
+     * Make sure bucket 0 holds the minimum: if it is empty, move the last minimum up to the smallest value in the
+     * lowest non empty bucket and spread that bucket, all its keys land in lower buckets
+     */
+    private void refill() {
+        if (head[0] != -1)
+            return;
+
+        int b = 1;
+        while (head[b] == -1)
+            b++;
+
+        long min = Long.MAX_VALUE;
+        for (int ki = head[b]; ki != -1; ki = next[ki])
+            min = Math.min(min, values[ki]);
+        last = min;
+
+        for (int ki = head[b]; ki != -1; ) {
+            int following = next[ki];
+            link(ki, bucketOf(values[ki]));
+            ki = following;
+        }
+        head[b] = -1;
+    }
+
+    private int bucketOf(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value ^ last);
+    }
+
+    // push ki at the front of bucket b, it must not be linked in another bucket
+    private void link(int ki, int b) {
+        bucket[ki] = b;
+        prev[ki] = -1;
+        next[ki] = head[b];
+        if (head[b] != -1)
+            prev[head[b]] = ki;
+        head[b] = ki;
+    }
+
+    private void unlink(int ki) {
+        if (prev[ki] != -1)
+            next[prev[ki]] = next[ki];
+        else
+            head[bucket[ki]] = next[ki];
+        if (next[ki] != -1)
+            prev[next[ki]] = prev[ki];
+    }
+
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int ki = head[b]; ki != -1; ki = next[ki])
+                lst.add(ki);
+        }
+        return lst.toString();
+    }
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty())
+            throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki))
+            throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueNotBelowLastOrThrow(long value) {
+        if (value < last)
+            throw new IllegalArgumentException("value is below the last minimum " + last + "; received: " + value);
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bound; received: " + ki);
+    }
+}
@@ -0,0 +1,40 @@
+package leightek.datastructure.pq;
+
+/**
+ * An indexed min priority queue on non negative long values for monotone use: a value inserted or decreased to can't
+ * be smaller than the last minimum polled. Dijkstra's algorithm with non negative integer weights only ever uses a
+ * queue this way, which lets the implementations place keys by their value instead of comparing them.
+ */
+public interface MonotoneIndexedQueue {
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * Remove all the keys and start over from the minimum 0
+     */
+    void clear();
+
+    /**
+     * Test if the queue contains the node with index ki
+     * @param ki  key index value
+     * @return true if exists or else false
+     */
+    boolean contains(int ki);
+
+    void insert(int ki, long value);
+
+    long valueOf(int ki);
+
+    /**
+     * Strictly decreases the value associated with 'ki' to 'value', no lower than the last minimum polled
+     * @param ki
+     * @param value
+     */
+    void decrease(int ki, long value);
+
+    long peekMinValue();
+
+    int pollMinKeyIndex();
+}
@@ -3,45 +3,66 @@ package leightek.datastructure.pq;
 import java.util.*;
 
 /**
- * A min priority queue implementation using a binary heap and a map
+ * A min priority queue implementation using a binary heap and a map. The map tracks the heap positions of every
+ * element in a {@link PositionMap}, so contains is O(1) and remove(T) is O(log(n)).
+ *
+ * A queue made by {@link #topK(int)} is bounded: it keeps only the K largest elements added to it, evicting its
+ * minimum when a larger element arrives, so polling it yields the top K in ascending order.
  */
 public class PQueue <T extends Comparable<T>> {
 
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8; // some VMs reserve header words in an array
+
     private int heapSize = 0; // The number of elements currently inside the heap
-    private int heapCapacity = 0; // The internal capacity of the heap
-    private List<T> heap = null; // A dynamic list to track the elements inside the heap
-    private Map<T, TreeSet<Integer>> map = new HashMap<>(); // A map to track the indices of a node value found
-                                                            // in the heap
+    private Object[] heap = null; // The elements inside the heap, grown geometrically
+    private PositionMap map = null; // A map to track the indices of a node value found in the heap
+    private final int bound; // The maximum number of elements kept, Integer.MAX_VALUE if unbounded
 
     public PQueue() {
         this(1);
     }
 
     public PQueue(int size) {
-        heap = new ArrayList<>(size);
+        this(size, Integer.MAX_VALUE);
+    }
+
+    private PQueue(int size, int bound) {
+        if (size < 0)
+            throw new IllegalArgumentException("size < 0");
+        this.bound = bound;
+        heap = new Object[Math.max(1, size)];
+        map = new PositionMap(size);
     }
 
     // Construct a priority queue using Heapify, O(n)
     public PQueue(T[] elems) {
+        this(elems.length);
 
-        heapSize = heapCapacity = elems.length;
-        heap = new ArrayList<T>(heapCapacity);
-
-        for (int i = 0; i < heapSize; i++) {
-            mapAdd(elems[i], i);
-            heap.add(elems[i]);
+        for (int i = 0; i < elems.length; i++) {
+            if (elems[i] == null)
+                throw new IllegalArgumentException();
+            heap[i] = elems[i];
+            map.add(elems[i], i);
         }
-
-        // Heapify process
-        for (int i = Math.max(0, heapSize / 2 - 1); i >= 0; i--)
-            sink(i);
+        heapSize = elems.length;
+        heapify();
     }
 
-    // General construction, O(nlog(n))
-    public PQueue(Collection<T> elems) {
+    // Construct a priority queue using Heapify, O(n)
+    public PQueue(Collection<? extends T> elems) {
         this(elems.size());
-        for (T elem: elems)
-            add(elem);
+        addAll(elems);
+    }
+
+    /**
+     * Create a bounded queue keeping the k largest elements added to it, O(log(k)) per element added
+     * @param k   the maximum number of elements kept
+     * @return an empty bounded queue
+     */
+    public static <T extends Comparable<T>> PQueue<T> topK(int k) {
+        if (k <= 0)
+            throw new IllegalArgumentException("k <= 0");
+        return new PQueue<>(Math.min(k, 1 << 10), k);
     }
 
     public boolean isEmpty() {
@@ -49,8 +70,7 @@ public class PQueue <T extends Comparable<T>> {
     }
 
     public void clear() {
-        for (int i = 0; i < heapCapacity; i++)
-            heap.set(i, null);
+        Arrays.fill(heap, 0, heapSize, null);
         heapSize = 0;
         map.clear();
     }
@@ -63,11 +83,12 @@ public class PQueue <T extends Comparable<T>> {
      *
      * @return the value of the element with the lowest priority
      */
+    @SuppressWarnings("unchecked")
     public T peek() {
         if (isEmpty())
             return null;
 
-        return heap.get(0);
+        return (T) heap[0];
     }
 
     /**
@@ -86,7 +107,7 @@ public class PQueue <T extends Comparable<T>> {
     public boolean contains(T elem) {
         if (elem == null)
             return false;
-        return map.containsKey(elem);
+        return map.contains(elem);
 
         // if not use map, O(n)
 //        for (int i = 0; i < heapSize; i++) {
@@ -97,23 +118,65 @@ public class PQueue <T extends Comparable<T>> {
     }
 
     /**
-     * Add an element to the heap, the element must not be null, O(log(n))
+     * Add an element to the heap, the element must not be null, O(log(n)). A bounded queue that is full drops the
+     * smaller of the element and its minimum
      * @param elem
+     * @return true if the element is in the heap after the call, false if a bounded queue dropped it
      */
-    public void add(T elem) {
+    public boolean add(T elem) {
         if (elem == null)
             throw new IllegalArgumentException();
 
-        if (heapSize < heapCapacity) {
-            heap.set(heapSize, elem);
-        } else {
-            heap.add(elem);
-            heapCapacity++;
+        if (heapSize == bound) {
+            if (elem.compareTo(peek()) <= 0)
+                return false;
+
+            // replace the minimum instead of a poll and an add, one sink rather than a sink and a swim
+            map.remove(heap[0], 0);
+            heap[0] = elem;
+            map.add(elem, 0);
+            sink(0);
+            return true;
         }
-        mapAdd(elem, heapSize);
+
+        if (heapSize == heap.length)
+            grow(heapSize + 1);
+        heap[heapSize] = elem;
+        map.add(elem, heapSize);
 
         swim(heapSize);
         heapSize++;
+        return true;
+    }
+
+    /**
+     * Add all the elements of a collection, none of them may be null. A batch large relative to the heap is appended
+     * and the whole heap rebuilt with Heapify, O(n + k), instead of k adds, O(k log(n + k))
+     * @param elems
+     */
+    public void addAll(Collection<? extends T> elems) {
+        int k = elems.size();
+        long total = (long) heapSize + k;
+        if (bound != Integer.MAX_VALUE || k == 0 || 2 * total > k * log2(total)) {
+            for (T elem : elems)
+                add(elem);
+            return;
+        }
+
+        if (total > heap.length)
+            grow((int) Math.min(total, MAX_ARRAY_SIZE));
+        int i = heapSize;
+        try {
+            for (T elem : elems) {
+                if (elem == null)
+                    throw new IllegalArgumentException();
+                heap[i] = elem;
+                map.add(elem, i++);
+            }
+        } finally {
+            heapSize = i; // keep the elements appended before a null, the heap is rebuilt below either way
+            heapify();
+        }
     }
 
     /**
@@ -122,10 +185,11 @@ public class PQueue <T extends Comparable<T>> {
      * @param j
      * @return true if the value of node i <= node j, or else false
      */
+    @SuppressWarnings("unchecked")
     private boolean less(int i, int j) {
 
-        T node1 = heap.get(i);
-        T node2 = heap.get(j);
+        T node1 = (T) heap[i];
+        T node2 = (T) heap[j];
         return node1.compareTo(node2) <= 0;
     }
 
@@ -172,13 +236,14 @@ public class PQueue <T extends Comparable<T>> {
      */
     private void swap(int i, int j) {
 
-        T i_elem = heap.get(i);
-        T j_elem = heap.get(j);
+        Object i_elem = heap[i];
+        Object j_elem = heap[j];
 
-        heap.set(i, j_elem);
-        heap.set(j, i_elem);
+        heap[i] = j_elem;
+        heap[j] = i_elem;
 
-        mapSwap(i_elem, j_elem, i, j);
+        map.move(i_elem, i, j);
+        map.move(j_elem, j, i);
     }
 
     /**
@@ -199,10 +264,10 @@ public class PQueue <T extends Comparable<T>> {
 //        }
 
         // Logarithmic removal with map, O(log(n))
-        Integer index = mapGet(elem);
-        if (index != null)
+        int index = map.get(elem);
+        if (index != -1)
             removeAt(index);
-        return index != null;
+        return index != -1;
     }
 
     /**
@@ -210,32 +275,56 @@ public class PQueue <T extends Comparable<T>> {
      * @param i
      * @return
      */
+    @SuppressWarnings("unchecked")
     private T removeAt(int i) {
 
         if (isEmpty())
             return null;
 
         heapSize--;
-        T removed_elem = heap.get(i);
-        if (heapSize > 1 && i != heapSize)
+        T removed_elem = (T) heap[i];
+        if (i != heapSize)
             swap(i, heapSize);
-        heap.set(heapSize, null);
-        mapRemove(removed_elem, heapSize);
+        heap[heapSize] = null;
+        map.remove(removed_elem, heapSize);
 
         if (i == heapSize)
             return removed_elem;
 
         if (heapSize > 1) {
-            T elem = heap.get(i);
+            Object elem = heap[i];
             sink(i);
 
-            if (heap.get(i).equals(elem))
+            if (heap[i] == elem)
                 swim(i);
         }
 
         return removed_elem;
     }
 
+    /**
+     * Rebuild the heap order of all the elements bottom up, O(n)
+     */
+    private void heapify() {
+        for (int i = Math.max(0, heapSize / 2 - 1); i >= 0; i--)
+            sink(i);
+    }
+
+    /**
+     * Grow the heap array by half its size but not past the bound, or to the minimum capacity if that is larger
+     * @param minCapacity
+     */
+    private void grow(int minCapacity) {
+        if (minCapacity < 0 || heap.length == MAX_ARRAY_SIZE)
+            throw new OutOfMemoryError("Priority queue too large");
+        int capacity = (int) Math.min(heap.length + (heap.length >> 1) + 1L, Math.min(bound, MAX_ARRAY_SIZE));
+        heap = Arrays.copyOf(heap, Math.max(capacity, minCapacity));
+    }
+
+    private static int log2(long n) {
+        return 63 - Long.numberOfLeadingZeros(Math.max(1, n));
+    }
+
     /**
      * Recursively check if the heap is a min heap, start at root with k = 0
      * @param k
@@ -253,67 +342,8 @@ public class PQueue <T extends Comparable<T>> {
         return isMinHeap(left) && isMinHeap(right);
     }
 
-    /**
-     * Add a node value and its index to the map
-     * @param value
-     * @param index
-     */
-    private void mapAdd(T value, int index) {
-
-        TreeSet<Integer> set = map.get(value);
-        if (set == null) {
-            set = new TreeSet<>();
-            set.add(index);
-            map.put(value, set);
-        } else
-            set.add(index);
-    }
-
-    /**
-     * Removes the index at a given value, O(log(n))
-     * @param value
-     * @param index
-     */
-    private void mapRemove(T value, int index) {
-
-        TreeSet<Integer> set = map.get(value);
-        set.remove(index);
-        if (set.size() == 0)
-            map.remove(value);
-    }
-
-    /**
-     * Extracts an index position for the given value, the highest index is returned if multiple indexes exist
-     * @param value
-     * @return the existing index of the given value, the highest one if multiple indexes exist, or else null
-     */
-    private Integer mapGet(T value) {
-
-        TreeSet<Integer> set = map.get(value);
-        if (set != null)
-            return set.last();
-        return null;
-    }
-
-    /**
-     * Exchanges the index of two nodes internally within the map
-     * @param val1
-     * @param val2
-     * @param index1
-     * @param index2
-     */
-    private void mapSwap(T val1, T val2, int index1, int index2) {
-
-        Set<Integer> set1 = map.get(val1);
-        Set<Integer> set2 = map.get(val2);
-        set1.remove(index1);
-        set2.remove(index2);
-        set1.add(index2);
-        set2.add(index1);
-    }
-
     @Override
     public String toString() {
-        return heap.toString();
+        return Arrays.toString(Arrays.copyOf(heap, heapSize));
     }
 }
@@ -0,0 +1,185 @@
+package leightek.datastructure.pq;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressed hash map from the elements of a {@link PQueue} to their positions in the heap, keyed by equals.
+ * The first position of an element is kept inline in its slot and only the positions of its duplicates go to a small
+ * array of the slot, so nothing is allocated per element and no position is boxed. Collisions are resolved by linear
+ * probing, and a removal shifts the rest of the run back instead of leaving a tombstone.
+ */
+final class PositionMap {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private Object[] keys; // the distinct elements, null for an empty slot
+    private int[] first; // the first position of the element in each slot
+    private int[][] rest; // the positions of the duplicates past the first, allocated at the first duplicate
+    private int[] counts; // the number of positions of the element in each slot
+    private int mask; // the capacity - 1, the capacity is a power of two
+    private int distinct; // the number of occupied slots
+
+    PositionMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize && capacity < MAX_CAPACITY)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    boolean contains(Object value) {
+        return slotOf(value) != -1;
+    }
+
+    /**
+     * Get a position of the value, the highest one if it is in the heap more than once
+     * @param value
+     * @return the highest position of the value, or -1 if it is not in the heap
+     */
+    int get(Object value) {
+        int s = slotOf(value);
+        if (s == -1)
+            return -1;
+
+        int position = first[s];
+        for (int k = 0; k < counts[s] - 1; k++)
+            position = Math.max(position, rest[s][k]);
+        return position;
+    }
+
+    void add(Object value, int position) {
+        int s = hash(value) & mask;
+        for (Object key; (key = keys[s]) != null; s = (s + 1) & mask) {
+            if (key.equals(value)) {
+                int duplicates = counts[s]++ - 1;
+                int[] positions = rest[s];
+                if (positions == null)
+                    positions = rest[s] = new int[2];
+                else if (duplicates == positions.length)
+                    positions = rest[s] = Arrays.copyOf(positions, 2 * duplicates);
+                positions[duplicates] = position;
+                return;
+            }
+        }
+
+        keys[s] = value;
+        first[s] = position;
+        counts[s] = 1;
+        if (++distinct * 2 > keys.length && keys.length < MAX_CAPACITY)
+            allocateAndRehash(keys.length * 2);
+    }
+
+    /**
+     * Remove one position of a value in the heap, O(1) plus the number of its duplicates
+     * @param value
+     * @param position
+     */
+    void remove(Object value, int position) {
+        int s = slotOf(value);
+        int duplicates = --counts[s];
+        if (duplicates == 0) {
+            delete(s);
+            return;
+        }
+
+        // the last duplicate takes the place of the removed position
+        int[] positions = rest[s];
+        int last = positions[duplicates - 1];
+        if (first[s] == position) {
+            first[s] = last;
+        } else {
+            int k = 0;
+            while (positions[k] != position)
+                k++;
+            positions[k] = last;
+        }
+    }
+
+    /**
+     * Move a value from one position in the heap to another
+     * @param value
+     * @param from
+     * @param to
+     */
+    void move(Object value, int from, int to) {
+        int s = slotOf(value);
+        if (first[s] == from) {
+            first[s] = to;
+        } else {
+            int[] positions = rest[s];
+            int k = 0;
+            while (positions[k] != from)
+                k++;
+            positions[k] = to;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(rest, null);
+        distinct = 0;
+    }
+
+    // Helper functions
+
+    private int slotOf(Object value) {
+        for (int s = hash(value) & mask; keys[s] != null; s = (s + 1) & mask) {
+            if (keys[s].equals(value))
+                return s;
+        }
+        return -1;
+    }
+
+    /**
+     * Empty slot s, moving back every later entry of its run that may not be found past the hole otherwise
+     * @param s
+     */
+    private void delete(int s) {
+        distinct--;
+        for (int next = (s + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - s) & mask)) {
+                keys[s] = keys[next];
+                first[s] = first[next];
+                rest[s] = rest[next];
+                counts[s] = counts[next];
+                s = next;
+            }
+        }
+        keys[s] = null;
+        rest[s] = null;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        first = new int[capacity];
+        rest = new int[capacity][];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void allocateAndRehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldFirst = first;
+        int[][] oldRest = rest;
+        int[] oldCounts = counts;
+        allocate(capacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            int s = hash(oldKeys[i]) & mask;
+            while (keys[s] != null)
+                s = (s + 1) & mask;
+            keys[s] = oldKeys[i];
+            first[s] = oldFirst[i];
+            rest[s] = oldRest[i];
+            counts[s] = oldCounts[i];
+        }
+    }
+
+    private static int hash(Object value) {
+        int h = value.hashCode() * 0x9E3779B9; // spread the low bits of sequential hash codes, like Integer's
+        return h ^ (h >>> 16);
+    }
+}
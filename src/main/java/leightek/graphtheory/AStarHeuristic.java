@@ -0,0 +1,43 @@
+package leightek.graphtheory;
+
+/**
+ * A lower bound on the distance between two nodes, used by {@link AStarShortestPath} to direct the search towards
+ * the end node. The estimate must be consistent: estimate(u, t) <= cost(u, v) + estimate(v, t) for every edge
+ * u -> v, which also makes it admissible (never above the true distance).
+ */
+@FunctionalInterface
+public interface AStarHeuristic {
+
+    /**
+     * Estimate the distance from a node to the end node
+     * @param node the index of the node
+     * @param end the index of the end node
+     * @return a lower bound of the distance, Double.POSITIVE_INFINITY if the end node is known to be unreachable
+     */
+    double estimate(int node, int end);
+
+    /**
+     * The heuristic that estimates 0 everywhere, A* with it is plain Dijkstra's algorithm
+     * @return the heuristic
+     */
+    static AStarHeuristic zero() {
+        return (node, end) -> 0;
+    }
+
+    /**
+     * The straight line distance between node coordinates, consistent if no edge costs less than the straight line
+     * distance between its nodes
+     * @param x the x coordinate of every node
+     * @param y the y coordinate of every node
+     * @return the heuristic
+     */
+    static AStarHeuristic euclidean(double[] x, double[] y) {
+        if (x == null || y == null || x.length != y.length)
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+
+        return (node, end) -> {
+            double dx = x[node] - x[end], dy = y[node] - y[end];
+            return Math.sqrt(dx * dx + dy * dy);
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package leightek.graphtheory;
+
+import leightek.datastructure.pq.DHeapArity;
+import leightek.datastructure.pq.MinIndexedDoubleDHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A* search from a start node to an end node. It is Dijkstra's algorithm on the reduced costs
+ * cost(u, v) - h(u) + h(v), h being the heuristic estimate to the end node: every node is keyed by its distance plus
+ * its estimate, so the nodes in the direction of the end node are settled first. With a consistent heuristic the
+ * reduced costs are non negative and the first time the end node is polled its distance is final.
+ */
+public class AStarShortestPath {
+
+    private final int n; // the number of nodes in the graph
+    private final StaticGraph graph;
+    private final AStarHeuristic heuristic;
+
+    private double[] dist; // the minimum distance from the start node
+    private int[] prev; // the node before each node on the shortest path, -1 if none
+    private int settledCount; // the number of nodes settled by the last query
+
+    public AStarShortestPath(StaticGraph graph, AStarHeuristic heuristic) {
+        if (graph == null || heuristic == null)
+            throw new IllegalArgumentException();
+
+        this.n = graph.getNumberOfNodes();
+        this.graph = graph;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Run A* search on a directed graph to find the shortest path
+     * @param start    start node
+     * @param end      end node
+     * @return the shortest distance if a path exists, or else Double.POSITIVE_INFINITY
+     */
+    public double aStar(int start, int end) {
+        nodesInBoundsOrThrow(start, end);
+
+        int degree = DHeapArity.degree("astar", n, DHeapArity.estimateDecreasesPerPoll(n, graph.getNumberOfEdges()));
+        MinIndexedDoubleDHeap ipq = new MinIndexedDoubleDHeap(degree, n); // keyed by distance + estimate
+        dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        prev = new int[n];
+        Arrays.fill(prev, -1);
+        boolean[] visited = new boolean[n];
+        double[] estimates = new double[n]; // the heuristic estimate of every node, computed at most once
+        Arrays.fill(estimates, Double.NaN);
+        settledCount = 0;
+
+        dist[start] = 0.0;
+        ipq.insert(start, heuristic.estimate(start, end));
+
+        while (!ipq.isEmpty()) {
+            int nodeId = ipq.pollMinKeyIndex();
+            visited[nodeId] = true;
+            settledCount++;
+
+            if (nodeId == end)
+                return dist[end];
+
+            for (int e = graph.begin(nodeId); e < graph.end(nodeId); e++) {
+                int to = graph.target(e);
+                if (visited[to])  // already visited
+                    continue;
+
+                double newDist = dist[nodeId] + graph.weight(e);
+                if (newDist < dist[to]) { // find better path
+                    if (Double.isNaN(estimates[to]))
+                        estimates[to] = heuristic.estimate(to, end);
+                    double estimate = estimates[to];
+                    if (estimate == Double.POSITIVE_INFINITY)
+                        continue; // the end node can't be reached from this node
+
+                    prev[to] = nodeId;
+                    dist[to] = newDist;
+                    if (!ipq.contains(to))
+                        ipq.insert(to, newDist + estimate);
+                    else
+                        ipq.decrease(to, newDist + estimate);
+                }
+            }
+        }
+
+        return Double.POSITIVE_INFINITY; // the end node is unreachable
+    }
+
+    /**
+     * Reconstructs the shortest path from start node to end node
+     * @param start   start node
+     * @param end     end node
+     * @return an array of node indexes of the shortest path from start to end, or else empty array
+     */
+    public List<Integer> reconstructPath(int start, int end) {
+        List<Integer> path = new ArrayList<>();
+        if (aStar(start, end) == Double.POSITIVE_INFINITY)
+            return path;
+
+        for (int at = end; at != -1; at = prev[at])
+            path.add(at);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Get the number of nodes settled by the last query
+     * @return the settled node count
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    private void nodesInBoundsOrThrow(int start, int end) {
+        if (end < 0 || end >= n || start < 0 || start >= n)
+            throw new IllegalArgumentException("Invalid node index");
+    }
+
+    public static void main(String[] args) {
+        // a grid of side x side nodes, each connected to its right and lower neighbours in both directions
+        int side = 300, n = side * side;
+        Random random = new Random(42);
+        double[] x = new double[n], y = new double[n];
+        CsrGraph.Builder builder = CsrGraph.builder(n);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int node = r * side + c;
+                x[node] = c;
+                y[node] = r;
+                if (c + 1 < side)
+                    builder.addUndirectedEdge(node, node + 1, 1 + random.nextInt(3));
+                if (r + 1 < side)
+                    builder.addUndirectedEdge(node, node + side, 1 + random.nextInt(3));
+            }
+        }
+        CsrGraph graph = builder.build();
+
+        AStarShortestPath dijkstra = new AStarShortestPath(graph, AStarHeuristic.zero());
+        AStarShortestPath euclidean = new AStarShortestPath(graph, AStarHeuristic.euclidean(x, y));
+        AStarShortestPath landmarks = new AStarShortestPath(graph, LandmarkHeuristic.selectFarthest(graph, 8, 42));
+
+        for (int i = 0; i < 5; i++) {
+            int start = random.nextInt(n), end = random.nextInt(n);
+            System.out.printf("%d -> %d: distance %.1f, settled nodes: dijkstra %d", start, end,
+                    dijkstra.aStar(start, end), dijkstra.getSettledCount());
+            euclidean.aStar(start, end);
+            System.out.printf(", euclidean %d", euclidean.getSettledCount());
+            landmarks.aStar(start, end);
+            System.out.printf(", landmarks %d\n", landmarks.getSettledCount());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package leightek.graphtheory;
+
+import leightek.datastructure.pq.DHeapArity;
+import leightek.datastructure.pq.MinIndexedDoubleDHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Bidirectional Dijkstra's algorithm for point to point queries. A forward search from the start node on the graph
+ * and a backward search from the end node on the reversed graph run in turns, and the query stops once the two
+ * smallest keys together are no less than the best path seen through a node reached by both searches. Each search
+ * covers a ball of about half the radius, so far fewer nodes get settled than with a single search.
+ */
+public class BidirectionalDijkstra {
+
+    private final int n; // the number of nodes in the graph
+    private final StaticGraph forward, backward; // the graph and its reverse
+
+    private double[] distF, distB; // the minimum distance from the start node/to the end node
+    private int[] prevF; // the node before each node on the path from the start node, -1 if none
+    private int[] nextB; // the node after each node on the path to the end node, -1 if none
+    private int meetingNode; // the node joining the two halves of the shortest path, -1 if none
+    private int settledCount; // the number of nodes settled by the last query, both searches together
+
+    public BidirectionalDijkstra(StaticGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+
+        this.n = graph.getNumberOfNodes();
+        this.forward = graph;
+        this.backward = CsrGraph.reverse(graph);
+    }
+
+    /**
+     * Run bidirectional Dijkstra's algorithm to find the shortest path
+     * @param start    start node
+     * @param end      end node
+     * @return the shortest distance if a path exists, or else Double.POSITIVE_INFINITY
+     */
+    public double dijkstra(int start, int end) {
+        nodesInBoundsOrThrow(start, end);
+
+        int degree = DHeapArity.degree("dijkstra", n,
+                DHeapArity.estimateDecreasesPerPoll(n, forward.getNumberOfEdges()));
+        MinIndexedDoubleDHeap ipqF = new MinIndexedDoubleDHeap(degree, n);
+        MinIndexedDoubleDHeap ipqB = new MinIndexedDoubleDHeap(degree, n);
+
+        distF = new double[n];
+        distB = new double[n];
+        Arrays.fill(distF, Double.POSITIVE_INFINITY);
+        Arrays.fill(distB, Double.POSITIVE_INFINITY);
+        prevF = new int[n];
+        nextB = new int[n];
+        Arrays.fill(prevF, -1);
+        Arrays.fill(nextB, -1);
+        boolean[] visitedF = new boolean[n], visitedB = new boolean[n];
+
+        distF[start] = 0.0;
+        distB[end] = 0.0;
+        ipqF.insert(start, 0.0);
+        ipqB.insert(end, 0.0);
+        meetingNode = start == end ? start : -1;
+        settledCount = 0;
+        double best = start == end ? 0.0 : Double.POSITIVE_INFINITY; // the shortest path seen so far
+
+        while (!ipqF.isEmpty() && !ipqB.isEmpty()) {
+            if (ipqF.peekMinValue() + ipqB.peekMinValue() >= best)
+                break; // no path through an unsettled node can be shorter
+
+            // expand the search with the smaller frontier key, keeps the two balls about the same radius
+            if (ipqF.peekMinValue() <= ipqB.peekMinValue())
+                best = expand(forward, ipqF, distF, prevF, visitedF, distB, best);
+            else
+                best = expand(backward, ipqB, distB, nextB, visitedB, distF, best);
+        }
+
+        return best;
+    }
+
+    /**
+     * Settle the closest node of one search and relax its edges
+     * @return the shortest path seen so far, updated with the nodes reached by both searches
+     */
+    private double expand(StaticGraph graph, MinIndexedDoubleDHeap ipq, double[] dist, int[] prev, boolean[] visited,
+                          double[] otherDist, double best) {
+        int nodeId = ipq.pollMinKeyIndex();
+        visited[nodeId] = true;
+        settledCount++;
+
+        for (int e = graph.begin(nodeId); e < graph.end(nodeId); e++) {
+            int to = graph.target(e);
+            if (visited[to])  // already visited
+                continue;
+
+            double newDist = dist[nodeId] + graph.weight(e);
+            if (newDist < dist[to]) { // find better path
+                prev[to] = nodeId;
+                dist[to] = newDist;
+                if (!ipq.contains(to))
+                    ipq.insert(to, newDist);
+                else
+                    ipq.decrease(to, newDist);
+            }
+
+            if (dist[to] + otherDist[to] < best) { // the two searches meet at this node
+                best = dist[to] + otherDist[to];
+                meetingNode = to;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Reconstructs the shortest path from start node to end node
+     * @param start   start node
+     * @param end     end node
+     * @return an array of node indexes of the shortest path from start to end, or else empty array
+     */
+    public List<Integer> reconstructPath(int start, int end) {
+        List<Integer> path = new ArrayList<>();
+        if (dijkstra(start, end) == Double.POSITIVE_INFINITY)
+            return path;
+
+        for (int at = meetingNode; at != -1; at = prevF[at])
+            path.add(at);
+        Collections.reverse(path);
+        for (int at = nextB[meetingNode]; at != -1; at = nextB[at])
+            path.add(at);
+        return path;
+    }
+
+    /**
+     * Get the number of nodes settled by the last query, both searches together
+     * @return the settled node count
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    private void nodesInBoundsOrThrow(int start, int end) {
+        if (end < 0 || end >= n || start < 0 || start >= n)
+            throw new IllegalArgumentException("Invalid node index");
+    }
+
+    public static void main(String[] args) {
+        int n = 100000;
+        Random random = new Random(42);
+        CsrGraph.Builder builder = CsrGraph.builder(n);
+        for (int i = 0; i < 4 * n; i++)
+            builder.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(100));
+        CsrGraph graph = builder.build();
+
+        DijkstrasShortestPathWithDHeap dijkstra = new DijkstrasShortestPathWithDHeap(graph);
+        BidirectionalDijkstra bidirectional = new BidirectionalDijkstra(graph);
+
+        for (int i = 0; i < 5; i++) {
+            int start = random.nextInt(n), end = random.nextInt(n);
+            System.out.printf("%d -> %d: dijkstra %.1f, bidirectional %.1f settling %d nodes, path %s\n", start, end,
+                    dijkstra.dijkstra(start, end), bidirectional.dijkstra(start, end),
+                    bidirectional.getSettledCount(), bidirectional.reconstructPath(start, end));
+        }
+    }
+}
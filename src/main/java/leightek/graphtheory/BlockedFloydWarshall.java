@@ -0,0 +1,351 @@
+package leightek.graphtheory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * Floyd Warshall algorithm over a flat row major matrix, blocked into tiles and run in parallel. The result is the
+ * same as {@link FloydWarshallSolver}, negative cycles included, but it scales to many thousands of nodes.
+ *
+ * The matrix is cut into tiles of tileSize x tileSize, and the intermediate nodes k are taken a tile at a time. For
+ * the k tile on the diagonal every round runs three phases: the diagonal tile relaxes itself, then the tiles in its
+ * row and column relax against it, then all the other tiles relax against the row and column tiles. The tiles of a
+ * phase are independent, so each phase runs in parallel on a fork-join pool, and a tile relaxation touches three
+ * tiles that stay in the cache for all tileSize values of k instead of streaming the whole matrix once per k.
+ *
+ * The next hops are kept in a flat int[] alongside, -1 if there is no path. The tiles take the intermediate nodes out
+ * of the order of the textbook loop, which is harmless while every cycle has a positive weight, but a zero weight
+ * cycle then leaves ties that can make the next hops go round it forever. So on a graph with an edge weight of zero or
+ * less the number of edges of each path is kept as well and breaks ties towards the shorter one, making every next hop
+ * one edge closer to the end.
+ */
+public class BlockedFloydWarshall {
+
+    public static final int DEFAULT_TILE_SIZE = 64; // three tiles of doubles and ints fit in a 256K L2
+
+    private static final int NO_PATH = -1;
+    private static final int REACHES_NEGATIVE_CYCLE = -2;
+
+    private final int n; // the number of nodes
+    private final int tileSize;
+    private final int tiles; // the number of tiles along a side of the matrix
+    private final ForkJoinPool pool;
+    private final double[] dist; // the distance from i to j at i * n + j
+    private final int[] next; // the node after i on the shortest path from i to j at i * n + j
+    private final int[] hops; // the number of edges on the path from i to j, null if every weight is positive
+    private boolean solved;
+
+    public BlockedFloydWarshall(double[][] matrix) {
+        this(flatten(matrix), matrix.length, DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a solver on a flat adjacency matrix. The matrix is solved in place, so a matrix of n = 10,000 does not
+     * need a second copy of its 800MB
+     * @param matrix     the edge weight from i to j at i * n + j, POSITIVE_INFINITY if there is no edge
+     * @param n          the number of nodes
+     * @param tileSize   the side of a tile, see DEFAULT_TILE_SIZE
+     * @param pool       the pool the tiles are relaxed on
+     */
+    public BlockedFloydWarshall(double[] matrix, int n, int tileSize, ForkJoinPool pool) {
+        if (matrix == null || n < 0 || matrix.length != (long) n * n)
+            throw new IllegalArgumentException("The matrix must hold n * n values");
+        if (tileSize <= 0)
+            throw new IllegalArgumentException("tileSize <= 0");
+        if (pool == null)
+            throw new IllegalArgumentException("Pool cannot be null!");
+
+        this.n = n;
+        this.tileSize = tileSize;
+        this.tiles = (n + tileSize - 1) / tileSize;
+        this.pool = pool;
+        this.dist = matrix;
+        this.next = new int[n * n];
+        boolean positive = true;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                double weight = matrix[i * n + j];
+                next[i * n + j] = weight != POSITIVE_INFINITY ? j : NO_PATH;
+                positive &= i == j || weight > 0;
+            }
+        }
+
+        if (positive) {
+            this.hops = null;
+        } else {
+            this.hops = new int[n * n];
+            for (int i = 0; i < n * n; i++)
+                hops[i] = i % (n + 1) == 0 ? 0 : 1;
+        }
+    }
+
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Run the blocked Floyd Warshall algorithm to compute APSP and detect negative cycles
+     * @return the flat APSP matrix, the distance from i to j at i * n + j, NEGATIVE_INFINITY if a negative cycle is
+     * on the way
+     */
+    public double[] solve() {
+        if (solved)
+            return dist;
+
+        for (int kt = 0; kt < tiles; kt++) {
+            relaxTile(kt, kt, kt);
+            if (tiles > 1) {
+                pool.invoke(new Phase(kt, Phase.ROW_AND_COLUMN, 0, 2 * (tiles - 1)));
+                pool.invoke(new Phase(kt, Phase.REST, 0, tiles - 1));
+            }
+        }
+        propagateNegativeCycles();
+
+        solved = true;
+        return dist;
+    }
+
+    /**
+     * Get the APSP matrix in the shape {@link FloydWarshallSolver} returns it
+     * @return a copy of the APSP matrix
+     */
+    public double[][] getAPSPMatrix() {
+        solve();
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++)
+            System.arraycopy(dist, i * n, matrix[i], 0, n);
+        return matrix;
+    }
+
+    /**
+     * Write the APSP matrix to a memory-mapped file, for services that query distances without holding the matrix
+     * @param file        the path of the file, replaced if it exists
+     * @param precision   the type the distances are stored as
+     * @return the matrix file, mapped for reading and writing
+     * @throws IOException if the file can't be written
+     */
+    public MappedDistanceMatrix writeAPSPMatrix(Path file, MappedDistanceMatrix.Precision precision)
+            throws IOException {
+        solve();
+        MappedDistanceMatrix matrix = MappedDistanceMatrix.create(file, n, precision);
+        for (int i = 0; i < n; i++)
+            matrix.write(i, 0, dist, i * n, n);
+        return matrix;
+    }
+
+    public double distance(int start, int end) {
+        nodesInBoundsOrThrow(start, end);
+        solve();
+        return dist[start * n + end];
+    }
+
+    /**
+     * Reconstruct the shortest path from start node to the end node
+     * @param start start node
+     * @param end end node
+     * @return the shortest path, empty if end is not reachable, or null if a negative cycle is on the way
+     */
+    public List<Integer> reconstructShortestPath(int start, int end) {
+        nodesInBoundsOrThrow(start, end);
+        solve();
+        List<Integer> path = new ArrayList<>();
+
+        if (dist[start * n + end] == NEGATIVE_INFINITY)
+            return null;
+        if (dist[start * n + end] != POSITIVE_INFINITY) {
+            for (int at = start; at != end; at = next[at * n + end]) {
+                if (at < 0)
+                    return null;
+                path.add(at);
+            }
+            path.add(end);
+        }
+
+        return path;
+    }
+
+    // Helper functions
+
+    /**
+     * Relax tile (it, jt) through the intermediate nodes of tile kt, the kernel of all three phases
+     */
+    private void relaxTile(int it, int jt, int kt) {
+        int iFrom = it * tileSize, iTo = Math.min(n, iFrom + tileSize);
+        int jFrom = jt * tileSize, jTo = Math.min(n, jFrom + tileSize);
+        int kFrom = kt * tileSize, kTo = Math.min(n, kFrom + tileSize);
+        if (hops != null) {
+            relaxTileCountingHops(iFrom, iTo, jFrom, jTo, kFrom, kTo);
+            return;
+        }
+
+        for (int k = kFrom; k < kTo; k++) {
+            int rowK = k * n;
+            for (int i = iFrom; i < iTo; i++) {
+                int rowI = i * n;
+                double dik = dist[rowI + k];
+                if (dik == POSITIVE_INFINITY)
+                    continue;
+                int nik = next[rowI + k];
+                MinPlus.KERNEL.relax(dist, rowI + jFrom, dik, dist, rowK + jFrom, jTo - jFrom, next, rowI + jFrom,
+                        nik, nik); // a NEGATIVE_INFINITY is marked later on
+            }
+        }
+    }
+
+    /**
+     * The kernel for graphs that may have zero weight cycles, a tie in distance goes to the path of fewer edges
+     */
+    private void relaxTileCountingHops(int iFrom, int iTo, int jFrom, int jTo, int kFrom, int kTo) {
+        for (int k = kFrom; k < kTo; k++) {
+            int rowK = k * n;
+            for (int i = iFrom; i < iTo; i++) {
+                int rowI = i * n;
+                double dik = dist[rowI + k];
+                if (dik == POSITIVE_INFINITY)
+                    continue;
+                int nik = next[rowI + k], hik = hops[rowI + k];
+                for (int j = jFrom; j < jTo; j++) {
+                    double d = dik + dist[rowK + j];
+                    int h = hik + hops[rowK + j];
+                    if (d < dist[rowI + j] || (d == dist[rowI + j] && h < hops[rowI + j])) {
+                        dist[rowI + j] = d;
+                        next[rowI + j] = nik;
+                        hops[rowI + j] = h;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Set every pair with a negative cycle on some path between them to NEGATIVE_INFINITY, in parallel over the rows
+     */
+    private void propagateNegativeCycles() {
+        int count = 0;
+        for (int k = 0; k < n; k++) {
+            if (dist[k * n + k] < 0)
+                count++;
+        }
+        if (count == 0)
+            return;
+
+        final int[] cycleNodes = new int[count];
+        for (int k = 0, c = 0; k < n; k++) {
+            if (dist[k * n + k] < 0)
+                cycleNodes[c++] = k;
+        }
+        pool.invoke(new NegativeCycleTask(cycleNodes, 0, n));
+    }
+
+    private void nodesInBoundsOrThrow(int start, int end) {
+        if (start < 0 || start >= n || end < 0 || end >= n)
+            throw new IllegalArgumentException("Invalid node index");
+    }
+
+    private static double[] flatten(double[][] matrix) {
+        if (matrix == null)
+            throw new IllegalArgumentException("Matrix cannot be null!");
+        int n = matrix.length;
+        double[] flat = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            if (matrix[i].length != n)
+                throw new IllegalArgumentException("The matrix must be square");
+            System.arraycopy(matrix[i], 0, flat, i * n, n);
+        }
+        return flat;
+    }
+
+    /**
+     * The tiles of one phase of round kt, indexed [from, to), split in halves down to a single one per task
+     */
+    private final class Phase extends RecursiveAction {
+
+        static final int ROW_AND_COLUMN = 0; // tile t is (kt, t') for t < tiles - 1, (t', kt) after, t' skipping kt
+        static final int REST = 1; // tile row t', skipping kt, every tile in the row but the column kt
+
+        private final int kt, phase, from, to;
+
+        Phase(int kt, int phase, int from, int to) {
+            this.kt = kt;
+            this.phase = phase;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Phase(kt, phase, from, mid), new Phase(kt, phase, mid, to));
+                return;
+            }
+
+            if (phase == ROW_AND_COLUMN) {
+                int t = from % (tiles - 1);
+                t = t < kt ? t : t + 1;
+                if (from < tiles - 1)
+                    relaxTile(kt, t, kt);
+                else
+                    relaxTile(t, kt, kt);
+            } else {
+                int it = from < kt ? from : from + 1;
+                for (int jt = 0; jt < tiles; jt++) {
+                    if (jt != kt)
+                        relaxTile(it, jt, kt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark the rows [from, to): i to j is NEGATIVE_INFINITY if i reaches a node k on a negative cycle that reaches j
+     */
+    private final class NegativeCycleTask extends RecursiveAction {
+
+        private static final int ROWS = 16; // the rows a task marks without splitting further
+
+        private final int[] cycleNodes;
+        private final int from, to;
+
+        NegativeCycleTask(int[] cycleNodes, int from, int to) {
+            this.cycleNodes = cycleNodes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new NegativeCycleTask(cycleNodes, from, mid), new NegativeCycleTask(cycleNodes, mid, to));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                int rowI = i * n;
+                for (int k : cycleNodes) {
+                    if (dist[rowI + k] == POSITIVE_INFINITY)
+                        continue;
+                    int rowK = k * n;
+                    for (int j = 0; j < n; j++) {
+                        if (dist[rowK + j] != POSITIVE_INFINITY) {
+                            dist[rowI + j] = NEGATIVE_INFINITY;
+                            next[rowI + j] = REACHES_NEGATIVE_CYCLE;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
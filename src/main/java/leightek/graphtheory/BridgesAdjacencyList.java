@@ -14,6 +14,7 @@ public class BridgesAdjacencyList {
     private boolean solved;
     private boolean[] visited;
     private List<List<Integer>> graph;
+    private StaticGraph csr; // set instead of graph when built from a CSR graph
     private List<Integer> bridges;
 
     public BridgesAdjacencyList(List<List<Integer>> graph, int n) {
@@ -25,6 +26,20 @@ public class BridgesAdjacencyList {
         this.n = n;
     }
 
+    /**
+     * Create a solver on an undirected CSR graph, i.e. every edge must be present in both directions. The dfs runs
+     * with explicit stacks, so the depth of the graph is not bounded by the thread stack size.
+     * @param graph the CSR graph
+     */
+    public BridgesAdjacencyList(StaticGraph graph) {
+        if (graph == null || graph.getNumberOfNodes() <= 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.csr = graph;
+        this.n = graph.getNumberOfNodes();
+    }
+
     /**
      * Run Bridges and Articulation Points Algorithm to find the bridges, each is formed by a pair of nodes.
      * The pair has even length and index (2*i, 2*i+1).
@@ -42,10 +57,19 @@ public class BridgesAdjacencyList {
 
         bridges = new ArrayList<>();
 
-        for (int i = 0; i < n; i++) {
-           if (!visited[i]) {
-               dfs(i, -1, bridges);
-           }
+        if (csr != null) {
+            int[] callStack = new int[n], parents = new int[n], edgeAt = new int[n];
+            for (int i = 0; i < n; i++) {
+                if (!visited[i]) {
+                    dfsCsr(i, callStack, parents, edgeAt);
+                }
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+               if (!visited[i]) {
+                   dfs(i, -1, bridges);
+               }
+            }
         }
 
         solved = true;
@@ -73,6 +97,46 @@ public class BridgesAdjacencyList {
         }
     }
 
+    // Same as dfs but iterative: callStack holds the nodes on the dfs path, parents their parent node and edgeAt the
+    // next edge to explore at each of them
+    private void dfsCsr(int start, int[] callStack, int[] parents, int[] edgeAt) {
+        int depth = 0;
+        callStack[0] = start;
+        parents[0] = -1;
+        edgeAt[0] = csr.begin(start);
+        visited[start] = true;
+        low[start] = ids[start] = ++id;
+
+        while (depth >= 0) {
+            int at = callStack[depth];
+
+            if (edgeAt[depth] < csr.end(at)) {
+                int to = csr.target(edgeAt[depth]++);
+                if (to == parents[depth])
+                    continue;
+                if (!visited[to]) {
+                    callStack[++depth] = to;
+                    parents[depth] = at;
+                    edgeAt[depth] = csr.begin(to);
+                    visited[to] = true;
+                    low[to] = ids[to] = ++id;
+                } else {
+                    low[at] = Math.min(low[at], ids[to]);
+                }
+                continue;
+            }
+
+            if (--depth >= 0) {
+                int parent = callStack[depth];
+                low[parent] = Math.min(low[parent], low[at]);
+                if (ids[parent] < low[at]) {
+                    bridges.add(parent);
+                    bridges.add(at);
+                }
+            }
+        }
+    }
+
     public static List<List<Integer>> createGraph(int n) {
         List<List<Integer>> graph = new ArrayList<>();
 
@@ -119,5 +183,8 @@ public class BridgesAdjacencyList {
         BridgesAdjacencyList solver = new BridgesAdjacencyList(graph, n);
         List<Integer> bridges = solver.findBridges();
         solver.printBridges(bridges);
+
+        BridgesAdjacencyList csrSolver = new BridgesAdjacencyList(CsrGraph.fromAdjacencyList(graph));
+        csrSolver.printBridges(csrSolver.findBridges());
     }
 }
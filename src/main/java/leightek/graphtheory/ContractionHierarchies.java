@@ -0,0 +1,547 @@
+package leightek.graphtheory;
+
+import leightek.datastructure.pq.DHeapArity;
+import leightek.datastructure.pq.MinIndexedDoubleDHeap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Contraction Hierarchies for fast point to point shortest path queries on a static graph.
+ *
+ * Preprocessing contracts the nodes one by one, cheapest first by edge difference (the shortcuts a contraction adds
+ * minus the edges it removes) plus the number of contracted neighbours. Contracting v adds a shortcut u -> x for every
+ * pair of edges u -> v -> x unless a witness search finds a path from u to x avoiding v that is no longer. The order
+ * of contraction is the rank of a node.
+ *
+ * A query is a bidirectional Dijkstra that only follows edges towards higher ranked nodes, forward from the start
+ * node and backward from the end node, and the two searches meet at the highest ranked node of the shortest path.
+ * Shortcuts remember the two edges they replace, so the path is unpacked to the original nodes.
+ *
+ * The query state is reused between queries, an instance must not be queried by several threads at once.
+ */
+public class ContractionHierarchies {
+
+    private static final int MAGIC = 0x47434843; // "CHCG"
+    private static final int VERSION = 1;
+    private static final int WITNESS_SETTLED_LIMIT = 500; // witness searches give up after settling this many nodes
+    private static final int NO_EDGE = -1;
+
+    private final int n; // the number of nodes
+    private final int[] rank; // the contraction order of every node
+    private final int[] edgeFrom, edgeTo; // the edges of the hierarchy, original edges and shortcuts
+    private final double[] edgeWeight;
+    private final int[] edgeChild1, edgeChild2; // the two edges a shortcut replaces, NO_EDGE for original edges
+
+    // the upward edges: up holds the edges u -> x with rank[u] < rank[x] at u, down holds the edges x -> u with
+    // rank[u] < rank[x] at u, i.e. the reversed graph for the backward search; both are lists of edge ids
+    private final int[] upOffsets, upEdges, downOffsets, downEdges;
+
+    // query state, version stamped so a query only pays for the nodes it touches
+    private final double[] distF, distB;
+    private final int[] prevEdgeF, prevEdgeB; // the edge used to reach each node in each search
+    private final int[] stampF, stampB;
+    private int stamp;
+    private final MinIndexedDoubleDHeap ipqF, ipqB;
+    private int meetingNode;
+    private int settledCount;
+
+    private ContractionHierarchies(int n, int[] rank, int m, int[] edgeFrom, int[] edgeTo, double[] edgeWeight,
+                                   int[] edgeChild1, int[] edgeChild2) {
+        this.n = n;
+        this.rank = rank;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeWeight = edgeWeight;
+        this.edgeChild1 = edgeChild1;
+        this.edgeChild2 = edgeChild2;
+
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            if (rank[edgeFrom[e]] < rank[edgeTo[e]])
+                upOffsets[edgeFrom[e] + 1]++;
+            else
+                downOffsets[edgeTo[e] + 1]++;
+        }
+        for (int u = 0; u < n; u++) {
+            upOffsets[u + 1] += upOffsets[u];
+            downOffsets[u + 1] += downOffsets[u];
+        }
+        upEdges = new int[upOffsets[n]];
+        downEdges = new int[downOffsets[n]];
+        int[] upNext = Arrays.copyOf(upOffsets, n), downNext = Arrays.copyOf(downOffsets, n);
+        for (int e = 0; e < m; e++) {
+            if (rank[edgeFrom[e]] < rank[edgeTo[e]])
+                upEdges[upNext[edgeFrom[e]]++] = e;
+            else
+                downEdges[downNext[edgeTo[e]]++] = e;
+        }
+
+        distF = new double[n];
+        distB = new double[n];
+        prevEdgeF = new int[n];
+        prevEdgeB = new int[n];
+        stampF = new int[n];
+        stampB = new int[n];
+        int degree = DHeapArity.degree("ch", Math.max(1, n), DHeapArity.estimateDecreasesPerPoll(n, m));
+        ipqF = new MinIndexedDoubleDHeap(degree, Math.max(1, n));
+        ipqB = new MinIndexedDoubleDHeap(degree, Math.max(1, n));
+    }
+
+    /**
+     * Preprocess a graph into a contraction hierarchy
+     * @param graph the graph, the weights can't be negative
+     * @return the hierarchy, ready for queries
+     */
+    public static ContractionHierarchies build(StaticGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        return new Contractor(graph).contractAll();
+    }
+
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    /**
+     * Get the number of edges in the hierarchy
+     * @return the number of original edges kept plus the number of shortcuts
+     */
+    public int getNumberOfEdges() {
+        return edgeFrom.length;
+    }
+
+    /**
+     * Find the shortest distance from start node to end node
+     * @param start    start node
+     * @param end      end node
+     * @return the shortest distance if a path exists, or else Double.POSITIVE_INFINITY
+     */
+    public double query(int start, int end) {
+        if (end < 0 || end >= n || start < 0 || start >= n)
+            throw new IllegalArgumentException("Invalid node index");
+
+        nextStamp();
+        ipqF.clear();
+        ipqB.clear();
+        settledCount = 0;
+
+        reach(stampF, distF, prevEdgeF, ipqF, start, 0.0, NO_EDGE);
+        reach(stampB, distB, prevEdgeB, ipqB, end, 0.0, NO_EDGE);
+        double best = Double.POSITIVE_INFINITY;
+        meetingNode = -1;
+
+        while (true) {
+            // a search is done once its smallest key is no less than the best path, nothing it finds can improve it
+            boolean forward = !ipqF.isEmpty() && ipqF.peekMinValue() < best;
+            boolean backward = !ipqB.isEmpty() && ipqB.peekMinValue() < best;
+            if (!forward && !backward)
+                break;
+            if (forward && backward)
+                forward = ipqF.peekMinValue() <= ipqB.peekMinValue();
+
+            int nodeId;
+            if (forward) {
+                nodeId = ipqF.pollMinKeyIndex();
+                for (int i = upOffsets[nodeId]; i < upOffsets[nodeId + 1]; i++) {
+                    int e = upEdges[i];
+                    reach(stampF, distF, prevEdgeF, ipqF, edgeTo[e], distF[nodeId] + edgeWeight[e], e);
+                }
+            } else {
+                nodeId = ipqB.pollMinKeyIndex();
+                for (int i = downOffsets[nodeId]; i < downOffsets[nodeId + 1]; i++) {
+                    int e = downEdges[i];
+                    reach(stampB, distB, prevEdgeB, ipqB, edgeFrom[e], distB[nodeId] + edgeWeight[e], e);
+                }
+            }
+            settledCount++;
+
+            if (stampF[nodeId] == stamp && stampB[nodeId] == stamp && distF[nodeId] + distB[nodeId] < best) {
+                best = distF[nodeId] + distB[nodeId]; // the two searches meet at this node
+                meetingNode = nodeId;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Reconstructs the shortest path from start node to end node, shortcuts unpacked
+     * @param start   start node
+     * @param end     end node
+     * @return an array of node indexes of the shortest path from start to end, or else empty array
+     */
+    public List<Integer> reconstructPath(int start, int end) {
+        List<Integer> path = new ArrayList<>();
+        if (query(start, end) == Double.POSITIVE_INFINITY)
+            return path;
+
+        List<Integer> edges = new ArrayList<>();
+        for (int at = meetingNode; prevEdgeF[at] != NO_EDGE; at = edgeFrom[prevEdgeF[at]])
+            edges.add(prevEdgeF[at]);
+        Collections.reverse(edges);
+        for (int at = meetingNode; prevEdgeB[at] != NO_EDGE; at = edgeTo[prevEdgeB[at]])
+            edges.add(prevEdgeB[at]);
+
+        path.add(start);
+        int[] stack = new int[64];
+        for (int edge : edges) {
+            int top = 0;
+            stack[top++] = edge;
+            while (top > 0) { // expand the shortcuts depth first, appending the end node of every original edge
+                int e = stack[--top];
+                if (edgeChild1[e] == NO_EDGE) {
+                    path.add(edgeTo[e]);
+                } else {
+                    if (top + 2 > stack.length)
+                        stack = Arrays.copyOf(stack, 2 * stack.length);
+                    stack[top++] = edgeChild2[e];
+                    stack[top++] = edgeChild1[e];
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Get the number of nodes settled by the last query, both searches together
+     * @return the settled node count
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Write the hierarchy to a file, so it can be loaded without preprocessing again
+     * @param file the path of the file
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            out.writeInt(edgeFrom.length);
+            for (int u = 0; u < n; u++)
+                out.writeInt(rank[u]);
+            for (int e = 0; e < edgeFrom.length; e++) {
+                out.writeInt(edgeFrom[e]);
+                out.writeInt(edgeTo[e]);
+                out.writeDouble(edgeWeight[e]);
+                out.writeInt(edgeChild1[e]);
+                out.writeInt(edgeChild2[e]);
+            }
+        }
+    }
+
+    /**
+     * Read a hierarchy written by {@link #save}
+     * @param file the path of the file
+     * @return the hierarchy
+     * @throws IOException if the file can't be read or is not a hierarchy file
+     */
+    public static ContractionHierarchies load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a contraction hierarchy file: " + file);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported contraction hierarchy file version: " + version);
+
+            int n = in.readInt(), m = in.readInt();
+            if (n < 0 || m < 0)
+                throw new IOException("Corrupt contraction hierarchy file: " + file);
+            int[] rank = new int[n];
+            for (int u = 0; u < n; u++)
+                rank[u] = in.readInt();
+
+            int[] from = new int[m], to = new int[m], child1 = new int[m], child2 = new int[m];
+            double[] weight = new double[m];
+            for (int e = 0; e < m; e++) {
+                from[e] = in.readInt();
+                to[e] = in.readInt();
+                weight[e] = in.readDouble();
+                child1[e] = in.readInt();
+                child2[e] = in.readInt();
+            }
+            return new ContractionHierarchies(n, rank, m, from, to, weight, child1, child2);
+        }
+    }
+
+    // record a tentative distance for a node in one of the searches
+    private void reach(int[] stamps, double[] dist, int[] prevEdge, MinIndexedDoubleDHeap ipq, int node,
+                       double newDist, int edge) {
+        if (stamps[node] != stamp) {
+            stamps[node] = stamp;
+            dist[node] = newDist;
+            prevEdge[node] = edge;
+            ipq.insert(node, newDist);
+        } else if (newDist < dist[node]) {
+            dist[node] = newDist;
+            prevEdge[node] = edge;
+            if (ipq.contains(node))
+                ipq.decrease(node, newDist);
+        }
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) { // start over before the stamp wraps around
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * The preprocessing state: a dynamic graph of edge ids per node that grows with the shortcuts.
+     */
+    private static class Contractor {
+
+        private final int n;
+        private int m; // the number of edges so far
+        private int[] from, to, child1, child2;
+        private double[] weight;
+        private final int[][] out, in; // the edge ids leaving/entering every node
+        private final int[] outCount, inCount;
+
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+
+        // witness search state, version stamped like the query state
+        private final double[] witnessDist;
+        private final int[] witnessStamp;
+        private int stamp;
+        private final MinIndexedDoubleDHeap witnessPq;
+
+        Contractor(StaticGraph graph) {
+            n = graph.getNumberOfNodes();
+            int capacity = Math.max(16, 2 * graph.getNumberOfEdges());
+            from = new int[capacity];
+            to = new int[capacity];
+            child1 = new int[capacity];
+            child2 = new int[capacity];
+            weight = new double[capacity];
+            out = new int[n][];
+            in = new int[n][];
+            outCount = new int[n];
+            inCount = new int[n];
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            witnessDist = new double[n];
+            witnessStamp = new int[n];
+            witnessPq = new MinIndexedDoubleDHeap(4, n);
+
+            for (int u = 0; u < n; u++) {
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    if (graph.weight(e) < 0)
+                        throw new IllegalArgumentException("Edge weights can't be negative");
+                    addEdge(u, graph.target(e), graph.weight(e), NO_EDGE, NO_EDGE);
+                }
+            }
+        }
+
+        ContractionHierarchies contractAll() {
+            MinIndexedDoubleDHeap order = new MinIndexedDoubleDHeap(4, n);
+            for (int v = 0; v < n; v++)
+                order.insert(v, priority(v));
+
+            int[] rank = new int[n];
+            for (int r = 0; r < n; r++) {
+                int v = order.pollMinKeyIndex();
+
+                // lazy update: the priority may be stale since the neighbours changed, contract v only if it is
+                // still no worse than the next candidate
+                double current = priority(v);
+                if (!order.isEmpty() && current > order.peekMinValue()) {
+                    order.insert(v, current);
+                    r--;
+                    continue;
+                }
+
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = r;
+                for (int i = 0; i < outCount[v]; i++)
+                    contractedNeighbours[to[out[v][i]]]++;
+                for (int i = 0; i < inCount[v]; i++)
+                    contractedNeighbours[from[in[v][i]]]++;
+            }
+
+            return new ContractionHierarchies(n, rank, m, Arrays.copyOf(from, m), Arrays.copyOf(to, m),
+                    Arrays.copyOf(weight, m), Arrays.copyOf(child1, m), Arrays.copyOf(child2, m));
+        }
+
+        // edge difference plus the number of contracted neighbours, which spreads the contraction over the graph
+        private double priority(int v) {
+            int removed = 0;
+            for (int i = 0; i < outCount[v]; i++)
+                if (!contracted[to[out[v][i]]]) removed++;
+            for (int i = 0; i < inCount[v]; i++)
+                if (!contracted[from[in[v][i]]]) removed++;
+            return contract(v, true) - removed + contractedNeighbours[v];
+        }
+
+        /**
+         * Add the shortcuts needed to remove v from the remaining graph
+         * @param v the node to contract
+         * @param simulate only count the shortcuts, don't add them
+         * @return the number of shortcuts
+         */
+        private int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            double maxOut = 0;
+            for (int i = 0; i < outCount[v]; i++) {
+                int e = out[v][i];
+                if (!contracted[to[e]])
+                    maxOut = Math.max(maxOut, weight[e]);
+            }
+
+            for (int i = 0; i < inCount[v]; i++) {
+                int incoming = in[v][i];
+                int u = from[incoming];
+                if (contracted[u] || u == v)
+                    continue;
+
+                witnessSearch(u, v, weight[incoming] + maxOut);
+                for (int j = 0; j < outCount[v]; j++) {
+                    int outgoing = out[v][j];
+                    int x = to[outgoing];
+                    if (contracted[x] || x == v || x == u)
+                        continue;
+
+                    double viaV = weight[incoming] + weight[outgoing];
+                    if (witnessStamp[x] == stamp && witnessDist[x] <= viaV)
+                        continue; // a path avoiding v is no longer, no shortcut needed
+
+                    shortcuts++;
+                    if (!simulate)
+                        addEdge(u, x, viaV, incoming, outgoing);
+                }
+            }
+            return shortcuts;
+        }
+
+        // Dijkstra's algorithm from u in the remaining graph without v, up to a distance and a number of nodes
+        private void witnessSearch(int u, int v, double maxDist) {
+            if (++stamp == Integer.MAX_VALUE) { // start over before the stamp wraps around
+                Arrays.fill(witnessStamp, 0);
+                stamp = 1;
+            }
+            witnessPq.clear();
+            witnessStamp[u] = stamp;
+            witnessDist[u] = 0.0;
+            witnessPq.insert(u, 0.0);
+
+            for (int settled = 0; !witnessPq.isEmpty() && settled < WITNESS_SETTLED_LIMIT; settled++) {
+                if (witnessPq.peekMinValue() > maxDist)
+                    break;
+                int nodeId = witnessPq.pollMinKeyIndex();
+
+                for (int i = 0; i < outCount[nodeId]; i++) {
+                    int e = out[nodeId][i];
+                    int x = to[e];
+                    if (x == v || contracted[x])
+                        continue;
+
+                    double newDist = witnessDist[nodeId] + weight[e];
+                    if (witnessStamp[x] != stamp) {
+                        witnessStamp[x] = stamp;
+                        witnessDist[x] = newDist;
+                        witnessPq.insert(x, newDist);
+                    } else if (newDist < witnessDist[x]) {
+                        witnessDist[x] = newDist;
+                        if (witnessPq.contains(x))
+                            witnessPq.decrease(x, newDist);
+                    }
+                }
+            }
+        }
+
+        // add an edge u -> x, or lower the weight of the existing one; parallel edges and self loops are dropped
+        private void addEdge(int u, int x, double w, int c1, int c2) {
+            if (u == x)
+                return;
+            for (int i = 0; i < outCount[u]; i++) {
+                int e = out[u][i];
+                if (to[e] == x) {
+                    if (w < weight[e]) {
+                        weight[e] = w;
+                        child1[e] = c1;
+                        child2[e] = c2;
+                    }
+                    return;
+                }
+            }
+
+            if (m == from.length) {
+                int capacity = 2 * m;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+                child1 = Arrays.copyOf(child1, capacity);
+                child2 = Arrays.copyOf(child2, capacity);
+            }
+            from[m] = u;
+            to[m] = x;
+            weight[m] = w;
+            child1[m] = c1;
+            child2[m] = c2;
+            appendEdgeId(out, outCount, u, m);
+            appendEdgeId(in, inCount, x, m);
+            m++;
+        }
+
+        private static void appendEdgeId(int[][] lists, int[] counts, int node, int e) {
+            if (lists[node] == null)
+                lists[node] = new int[4];
+            else if (counts[node] == lists[node].length)
+                lists[node] = Arrays.copyOf(lists[node], 2 * counts[node]);
+            lists[node][counts[node]++] = e;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // a grid of side x side nodes, each connected to its right and lower neighbours in both directions
+        int side = 100, n = side * side;
+        Random random = new Random(42);
+        CsrGraph.Builder builder = CsrGraph.builder(n);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int node = r * side + c;
+                if (c + 1 < side)
+                    builder.addUndirectedEdge(node, node + 1, 1 + random.nextInt(10));
+                if (r + 1 < side)
+                    builder.addUndirectedEdge(node, node + side, 1 + random.nextInt(10));
+            }
+        }
+        CsrGraph graph = builder.build();
+
+        ContractionHierarchies ch = ContractionHierarchies.build(graph);
+        System.out.printf("Hierarchy of %d nodes, %d original edges, %d edges with shortcuts\n", n,
+                graph.getNumberOfEdges(), ch.getNumberOfEdges());
+
+        Path file = Files.createTempFile("grid", ".ch");
+        ch.save(file);
+        ch = ContractionHierarchies.load(file);
+        Files.delete(file);
+
+        DijkstrasShortestPathWithDHeap dijkstra = new DijkstrasShortestPathWithDHeap(graph);
+        for (int i = 0; i < 5; i++) {
+            int start = random.nextInt(n), end = random.nextInt(n);
+            System.out.printf("%d -> %d: dijkstra %.1f, contraction hierarchies %.1f settling %d nodes\n", start, end,
+                    dijkstra.dijkstra(start, end), ch.query(start, end), ch.getSettledCount());
+            System.out.println("  path: " + ch.reconstructPath(start, end));
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package leightek.graphtheory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable directed graph in Compressed Sparse Row layout. The edges leaving node u have the edge ids
+ * [begin(u), end(u)), and the target and weight of edge e are at index e of the targets/weights arrays. Compared to
+ * a List<List<Edge>> adjacency list it costs 4 bytes per edge (12 if weighted) plus 4 bytes per node, and the edges
+ * of a node are contiguous in memory.
+ */
+public final class CsrGraph implements StaticGraph {
+
+    private final int n; // the number of nodes
+    private final int[] offsets; // the edges of node u are at [offsets[u], offsets[u + 1]), length n + 1
+    private final int[] targets; // the end node of every edge, indexed by edge id
+    private final double[] weights; // the weight of every edge, indexed by edge id, null if the graph is unweighted
+    private volatile long maxIntegerWeight = -2; // -2 until the weights are scanned
+
+    private CsrGraph(int n, int[] offsets, int[] targets, double[] weights) {
+        this.n = n;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return offsets[n];
+    }
+
+    @Override
+    public int begin(int u) {
+        return offsets[u];
+    }
+
+    @Override
+    public int end(int u) {
+        return offsets[u + 1];
+    }
+
+    @Override
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    @Override
+    public int target(int e) {
+        return targets[e];
+    }
+
+    @Override
+    public double weight(int e) {
+        return weights == null ? 1 : weights[e];
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    @Override
+    public long maxIntegerWeight() {
+        long max = maxIntegerWeight;
+        if (max == -2)
+            maxIntegerWeight = max = DijkstraQueryContext.maxIntegerWeight(this);
+        return max;
+    }
+
+    /**
+     * Create a CSR graph from an unweighted adjacency list, the order of the edges of every node is kept
+     * @param graph the adjacency list
+     * @return the CSR graph
+     */
+    public static CsrGraph fromAdjacencyList(List<List<Integer>> graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+
+        int n = graph.size();
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++)
+            offsets[u + 1] = offsets[u] + graph.get(u).size();
+
+        int[] targets = new int[offsets[n]];
+        for (int u = 0, e = 0; u < n; u++) {
+            for (int to : graph.get(u)) {
+                if (to < 0 || to >= n)
+                    throw new IllegalArgumentException("Invalid node index: " + to);
+                targets[e++] = to;
+            }
+        }
+
+        return new CsrGraph(n, offsets, targets, null);
+    }
+
+    /**
+     * Create the reverse of a graph, every edge u -> v with weight w becomes v -> u with weight w, O(n + m)
+     * @param graph the graph to reverse
+     * @return the reversed graph
+     */
+    public static CsrGraph reverse(StaticGraph graph) {
+        int n = graph.getNumberOfNodes(), m = graph.getNumberOfEdges();
+
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < m; e++)
+            offsets[graph.target(e) + 1]++;
+        for (int u = 0; u < n; u++)
+            offsets[u + 1] += offsets[u];
+
+        int[] next = Arrays.copyOf(offsets, n); // the next free edge id of every node
+        int[] targets = new int[m];
+        double[] weights = graph.isWeighted() ? new double[m] : null;
+        for (int u = 0; u < n; u++) {
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int r = next[graph.target(e)]++;
+                targets[r] = u;
+                if (weights != null)
+                    weights[r] = graph.weight(e);
+            }
+        }
+
+        return new CsrGraph(n, offsets, targets, weights);
+    }
+
+    public static Builder builder(int n) {
+        return new Builder(n, 16);
+    }
+
+    /**
+     * Create a builder with room for a known number of edges, avoids regrowing the edge arrays
+     * @param n the number of nodes
+     * @param expectedEdges the number of edges expected to be added
+     * @return the builder
+     */
+    public static Builder builder(int n, int expectedEdges) {
+        return new Builder(n, Math.max(1, expectedEdges));
+    }
+
+    /**
+     * Collects edges in any order, then lays them out by start node. The edges of a node keep the order they were
+     * added in.
+     */
+    public static class Builder {
+
+        private final int n;
+        private int m; // the number of edges added so far
+        private int[] from, to;
+        private double[] weights;
+        private boolean weighted;
+
+        private Builder(int n, int capacity) {
+            if (n < 0)
+                throw new IllegalArgumentException("n < 0");
+            this.n = n;
+            from = new int[capacity];
+            to = new int[capacity];
+            weights = new double[capacity];
+        }
+
+        /**
+         * Add an unweighted directed edge
+         * @param from the index of the start node
+         * @param to the index of the end node
+         * @return this builder
+         */
+        public Builder addEdge(int from, int to) {
+            return add(from, to, 1);
+        }
+
+        /**
+         * Add a weighted directed edge
+         * @param from the index of the start node
+         * @param to the index of the end node
+         * @param weight the weight of the edge
+         * @return this builder
+         */
+        public Builder addEdge(int from, int to, double weight) {
+            weighted = true;
+            return add(from, to, weight);
+        }
+
+        public Builder addUndirectedEdge(int u, int v) {
+            return addEdge(u, v).addEdge(v, u);
+        }
+
+        public Builder addUndirectedEdge(int u, int v, double weight) {
+            return addEdge(u, v, weight).addEdge(v, u, weight);
+        }
+
+        private Builder add(int u, int v, double weight) {
+            if (u < 0 || u >= n || v < 0 || v >= n)
+                throw new IllegalArgumentException("Invalid edge: " + u + " -> " + v);
+
+            if (m == from.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE - 8, 2L * m);
+                if (capacity == m)
+                    throw new IllegalStateException("Too many edges");
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+
+            from[m] = u;
+            to[m] = v;
+            weights[m] = weight;
+            m++;
+            return this;
+        }
+
+        /**
+         * Lay out the edges with a counting sort on the start node, O(n + m)
+         * @return the CSR graph
+         */
+        public CsrGraph build() {
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < m; i++)
+                offsets[from[i] + 1]++;
+            for (int u = 0; u < n; u++)
+                offsets[u + 1] += offsets[u];
+
+            int[] next = Arrays.copyOf(offsets, n); // the next free edge id of every node
+            int[] targets = new int[m];
+            double[] w = weighted ? new double[m] : null;
+            for (int i = 0; i < m; i++) {
+                int e = next[from[i]]++;
+                targets[e] = to[i];
+                if (w != null)
+                    w[e] = weights[i];
+            }
+
+            return new CsrGraph(n, offsets, targets, w);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package leightek.graphtheory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single source shortest paths by delta-stepping. The nodes are kept in buckets of width delta by their
+ * tentative distance, and the lowest non empty bucket is processed as a whole: all of its nodes relax their light
+ * edges, of weight up to delta, in parallel, the nodes improved into the same bucket are processed again until it runs
+ * empty, then every node settled in the bucket relaxes its heavy edges once and the search moves on to the next bucket.
+ * A heavy edge can't lead back into the bucket, so only the light edges of a node may be relaxed more than once, unlike
+ * in Dijkstra's algorithm, but a bucket gives enough independent work to keep every core busy. With delta near the
+ * largest weight over the average degree the extra relaxations stay few on most graphs.
+ *
+ * The targets and weights of every node are copied light first once, m ints and m doubles, so a phase reads only the
+ * edges it relaxes and reads them in order.
+ *
+ * The distances live in an AtomicLongArray holding the double bits and are lowered with compare and set, so they are
+ * the same as the sequential solver finds. The predecessors are set afterwards by a parallel breadth first search over
+ * the tight edges, dist[u] + w == dist[v], which gives every node a shortest path from the start node; on ties the
+ * path may differ from the one Dijkstra's algorithm picks.
+ */
+public class DeltaSteppingShortestPath {
+
+    private static final int GRAIN = 256; // the number of frontier nodes a task handles without splitting further
+    private static final int FAR = 64; // the bucket offset past which a task files pushed nodes in one far list
+
+    private final int n; // the number of nodes in the graph
+    private final StaticGraph graph;
+    private final double delta; // the width of a bucket
+    private final ForkJoinPool pool;
+    private final int[] targets; // the targets of every node from begin(u) to end(u), the light edges first
+    private final double[] weights; // the weights in the same order
+    private final int[] lightEnd; // the end of the light edges of every node
+
+    private double[] dist; // the minimum distance from the start node of the last run
+    private int[] prev; // the node before each node on the shortest path, -1 if none
+    private int lastStart = -1;
+
+    public DeltaSteppingShortestPath(StaticGraph graph) {
+        this(graph, 0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a solver
+     * @param graph   the graph, the weights can't be negative
+     * @param delta   the bucket width, or 0 to derive it from the largest weight and the average degree
+     * @param pool    the pool the relaxations run on
+     */
+    public DeltaSteppingShortestPath(StaticGraph graph, double delta, ForkJoinPool pool) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        if (pool == null)
+            throw new IllegalArgumentException("Pool cannot be null!");
+        if (!(delta >= 0) || delta == Double.POSITIVE_INFINITY)
+            throw new IllegalArgumentException("Invalid delta: " + delta);
+
+        this.n = graph.getNumberOfNodes();
+        this.graph = graph;
+        this.pool = pool;
+
+        double maxWeight = 0;
+        for (int e = 0; e < graph.getNumberOfEdges(); e++) {
+            double weight = graph.weight(e);
+            if (!(weight >= 0))
+                throw new IllegalArgumentException("Edge weights can't be negative; received: " + weight);
+            maxWeight = Math.max(maxWeight, weight);
+        }
+        if (delta == 0) {
+            double averageDegree = Math.max(1.0, (double) graph.getNumberOfEdges() / Math.max(1, n));
+            delta = maxWeight > 0 ? maxWeight / averageDegree : 1;
+        }
+        this.delta = delta;
+
+        targets = new int[graph.getNumberOfEdges()];
+        weights = new double[graph.getNumberOfEdges()];
+        lightEnd = new int[n];
+        for (int u = 0; u < n; u++) {
+            int light = graph.begin(u), heavy = graph.end(u);
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int at = graph.weight(e) <= delta ? light++ : --heavy;
+                targets[at] = graph.target(e);
+                weights[at] = graph.weight(e);
+            }
+            lightEnd[u] = light;
+        }
+    }
+
+    public double getDelta() {
+        return delta;
+    }
+
+    /**
+     * Find the shortest distance from start node to every node
+     * @param start start node
+     * @return the shortest distance to every node, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double[] solve(int start) {
+        if (start < 0 || start >= n)
+            throw new IllegalArgumentException("Invalid node index");
+
+        AtomicLongArray bits = new AtomicLongArray(n);
+        long infinity = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++)
+            bits.lazySet(i, infinity);
+        bits.set(start, Double.doubleToRawLongBits(0.0));
+
+        TreeMap<Long, IntList> buckets = new TreeMap<>(); // the nodes waiting in each bucket, duplicates allowed
+        buckets.put(0L, IntList.of(start));
+        int[] settledIn = new int[n]; // the number of the bucket each node was settled in, counting from 1
+        int processed = 0;
+
+        for (Map.Entry<Long, IntList> entry; (entry = buckets.pollFirstEntry()) != null; ) {
+            long bucket = entry.getKey();
+            IntList frontier = entry.getValue();
+            IntList settled = new IntList();
+            processed++;
+            while (frontier != null) { // a bucket is processed until no node is improved back into it
+                for (int i = 0; i < frontier.size; i++) {
+                    int u = frontier.values[i];
+                    if (settledIn[u] != processed && bucketOf(Double.longBitsToDouble(bits.get(u))) == bucket) {
+                        settledIn[u] = processed;
+                        settled.add(u);
+                    }
+                }
+                relax(bits, frontier, bucket, false, buckets);
+                frontier = buckets.remove(bucket);
+            }
+            // the distances in the bucket are final now, and a heavy edge leads to a later bucket
+            relax(bits, settled, bucket, true, buckets);
+        }
+
+        dist = new double[n];
+        for (int i = 0; i < n; i++)
+            dist[i] = Double.longBitsToDouble(bits.get(i));
+        prev = tightEdgeTree(start);
+        lastStart = start;
+        return dist.clone();
+    }
+
+    /**
+     * Get the predecessors found by the last run
+     * @return the node before every node on its shortest path, -1 for the start node and the unreachable nodes
+     */
+    public int[] getPredecessors() {
+        if (prev == null)
+            throw new IllegalStateException("No shortest paths found yet");
+        return prev.clone();
+    }
+
+    /**
+     * Reconstructs the shortest path to end node from the start node of the last run
+     * @param end end node
+     * @return an array of node indexes of the shortest path, or else empty array
+     */
+    public List<Integer> reconstructPath(int end) {
+        if (prev == null)
+            throw new IllegalStateException("No shortest paths found yet");
+        if (end < 0 || end >= n)
+            throw new IllegalArgumentException("Invalid node index");
+
+        List<Integer> path = new ArrayList<>();
+        if (dist[end] == Double.POSITIVE_INFINITY)
+            return path;
+        for (int at = end; at != -1; at = prev[at])
+            path.add(at);
+        Collections.reverse(path);
+        return path;
+    }
+
+    public int getLastStart() {
+        return lastStart;
+    }
+
+    private long bucketOf(double distance) {
+        return (long) (distance / delta);
+    }
+
+    /**
+     * Relax the light or the heavy edges of the frontier nodes still in the bucket, and file the improved nodes in
+     * their buckets
+     */
+    private void relax(AtomicLongArray bits, IntList frontier, long bucket, boolean heavy,
+                       TreeMap<Long, IntList> buckets) {
+        ConcurrentLinkedQueue<IntList[]> pushed = new ConcurrentLinkedQueue<>();
+        pool.invoke(new RelaxTask(bits, frontier, 0, frontier.size, bucket, heavy, pushed));
+
+        for (IntList[] local : pushed) {
+            for (int offset = 0; offset < FAR; offset++) {
+                if (local[offset] != null)
+                    buckets.computeIfAbsent(bucket + offset, b -> new IntList()).addAll(local[offset]);
+            }
+            IntList far = local[FAR];
+            for (int i = 0; far != null && i < far.size; i++) {
+                long b = bucketOf(Double.longBitsToDouble(bits.get(far.values[i])));
+                buckets.computeIfAbsent(b, key -> new IntList()).add(far.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Build the shortest path tree by a level synchronous breadth first search over the tight edges from start node,
+     * a node takes the first predecessor that claims it
+     */
+    private int[] tightEdgeTree(int start) {
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++)
+            parent.lazySet(i, -1);
+
+        IntList frontier = IntList.of(start);
+        while (frontier.size > 0) {
+            ConcurrentLinkedQueue<IntList> found = new ConcurrentLinkedQueue<>();
+            pool.invoke(new TreeTask(parent, start, frontier, 0, frontier.size, found));
+
+            IntList next = new IntList();
+            for (IntList local : found)
+                next.addAll(local);
+            frontier = next;
+        }
+
+        int[] tree = new int[n];
+        for (int i = 0; i < n; i++)
+            tree[i] = parent.get(i);
+        return tree;
+    }
+
+    /**
+     * Relax the light or the heavy edges of the frontier nodes in [from, to) still in the bucket, the improved nodes
+     * are pushed to the local buckets of the leaf task, indexed by their offset from the current bucket up to FAR
+     */
+    private final class RelaxTask extends RecursiveAction {
+        private final AtomicLongArray bits;
+        private final IntList frontier;
+        private final int from, to;
+        private final long bucket;
+        private final boolean heavy;
+        private final ConcurrentLinkedQueue<IntList[]> pushed;
+
+        RelaxTask(AtomicLongArray bits, IntList frontier, int from, int to, long bucket, boolean heavy,
+                  ConcurrentLinkedQueue<IntList[]> pushed) {
+            this.bits = bits;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.bucket = bucket;
+            this.heavy = heavy;
+            this.pushed = pushed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RelaxTask(bits, frontier, from, mid, bucket, heavy, pushed),
+                        new RelaxTask(bits, frontier, mid, to, bucket, heavy, pushed));
+                return;
+            }
+
+            IntList[] local = new IntList[FAR + 1];
+            for (int i = from; i < to; i++) {
+                int u = frontier.values[i];
+                double du = Double.longBitsToDouble(bits.get(u));
+                if (bucketOf(du) != bucket)
+                    continue; // improved into an earlier bucket and processed there already
+
+                int first = heavy ? lightEnd[u] : graph.begin(u), last = heavy ? graph.end(u) : lightEnd[u];
+                for (int at = first; at < last; at++) {
+                    int v = targets[at];
+                    double newDist = du + weights[at];
+                    long newBits = Double.doubleToRawLongBits(newDist);
+                    // non negative doubles order the same as their bits, so the minimum can be kept on the raw bits
+                    for (long old = bits.get(v); newBits < old; old = bits.get(v)) {
+                        if (bits.compareAndSet(v, old, newBits)) {
+                            int offset = (int) Math.min(bucketOf(newDist) - bucket, FAR);
+                            if (local[offset] == null)
+                                local[offset] = new IntList();
+                            local[offset].add(v);
+                            break;
+                        }
+                    }
+                }
+            }
+            pushed.add(local);
+        }
+    }
+
+    /**
+     * Claim the unclaimed nodes at the end of tight edges out of the frontier nodes in [from, to)
+     */
+    private final class TreeTask extends RecursiveAction {
+        private final AtomicIntegerArray parent;
+        private final int start;
+        private final IntList frontier;
+        private final int from, to;
+        private final ConcurrentLinkedQueue<IntList> found;
+
+        TreeTask(AtomicIntegerArray parent, int start, IntList frontier, int from, int to,
+                 ConcurrentLinkedQueue<IntList> found) {
+            this.parent = parent;
+            this.start = start;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TreeTask(parent, start, frontier, from, mid, found),
+                        new TreeTask(parent, start, frontier, mid, to, found));
+                return;
+            }
+
+            IntList local = new IntList();
+            for (int i = from; i < to; i++) {
+                int u = frontier.values[i];
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (v != start && dist[u] + graph.weight(e) == dist[v] && parent.compareAndSet(v, -1, u))
+                        local.add(v);
+                }
+            }
+            found.add(local);
+        }
+    }
+
+    // a growable list of ints
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        static IntList of(int value) {
+            IntList list = new IntList();
+            list.add(value);
+            return list;
+        }
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length)
+                values = Arrays.copyOf(values, Math.max(size + other.size, 2 * values.length));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+
+    public static void main(String[] args) {
+        int n = 1000000;
+        Random random = new Random(42);
+        CsrGraph.Builder builder = CsrGraph.builder(n, 4 * n);
+        for (int i = 0; i < 4 * n; i++)
+            builder.addEdge(random.nextInt(n), random.nextInt(n), random.nextDouble());
+        CsrGraph graph = builder.build();
+
+        DijkstraQueryContext dijkstra = new DijkstraQueryContext(graph);
+        DeltaSteppingShortestPath deltaStepping = new DeltaSteppingShortestPath(graph);
+
+        for (int i = 0; i < 3; i++) {
+            int start = random.nextInt(n);
+            long begin = System.nanoTime();
+            double[] expected = dijkstra.oneToAll(start);
+            long middle = System.nanoTime();
+            double[] dist = deltaStepping.solve(start);
+            long end = System.nanoTime();
+            System.out.printf("from %d: dijkstra %d ms, delta-stepping %d ms on %d threads (delta %.3f), same: %b\n",
+                    start, (middle - begin) / 1000000, (end - middle) / 1000000,
+                    ForkJoinPool.commonPool().getParallelism(), deltaStepping.getDelta(),
+                    Arrays.equals(expected, dist));
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package leightek.graphtheory;
+
+import leightek.datastructure.pq.DHeapArity;
+import leightek.datastructure.pq.IndexedDoubleHeap;
+import leightek.datastructure.pq.MinIndexedBucketQueue;
+import leightek.datastructure.pq.MinIndexedDoubleDHeap;
+import leightek.datastructure.pq.MinIndexedRadixHeap;
+import leightek.datastructure.pq.MonotoneIndexedQueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The reusable state of Dijkstra's algorithm on one graph: the heap, distances and predecessors are allocated once
+ * and kept between queries. Instead of clearing the arrays, every query takes a new stamp and a node's entries only
+ * count if its stamp matches (the same trick as the visitedToken in {@link NetworkFlowBase}), so a query costs time
+ * proportional to the part of the graph it explores and allocates nothing.
+ *
+ * Besides point to point queries a context answers one to all queries, which settle every reachable node, and one to
+ * many queries, which stop once the last of a set of targets is settled.
+ *
+ * On graphs whose weights are all non negative integers the queue can be a bucket queue or a radix heap instead of
+ * the D-ary heap, see {@link Engine}; they place the nodes by distance rather than compare them, and by default the
+ * context picks one of them whenever the weights allow. For any non negative weights the D-ary heap can also be
+ * swapped for a pairing or Fibonacci heap, whose cheaper decrease can win on dense graphs.
+ *
+ * A context is not thread-safe, use one per thread; the graph itself can be shared.
+ */
+public class DijkstraQueryContext {
+
+    /**
+     * The priority queue the searches run on
+     */
+    public enum Engine {
+        D_HEAP, // a D-ary heap on double distances, for any non negative weights
+        PAIRING_HEAP, // a pairing heap on double distances, decrease in O(1) in practice
+        FIBONACCI_HEAP, // a Fibonacci heap on double distances, O(m + n log n)
+        RADIX_HEAP, // a radix heap, O(m + n log C) for non negative integer weights up to C
+        BUCKET_QUEUE, // Dial's bucket queue, O(m + D) for non negative integer weights and a largest distance D
+        AUTO // a bucket queue for small integer weights, a radix heap for larger ones, or else a D-ary heap
+    }
+
+    private static final int MAX_BUCKET_WEIGHT = 1 << 12; // the largest weight AUTO uses a bucket queue for
+    private static final int TUNE_AFTER_POLLS = 1 << 14; // the polls observed before the heap degree is picked again
+
+    private final int n; // the number of nodes in the graph
+    private final StaticGraph graph;
+    private final Engine engine; // the engine in use, never AUTO
+    private IndexedDoubleHeap ipq; // the queue of the heap engines, null for the integer ones
+    private boolean tuned; // whether the heap degree has been picked for the observed decrease/poll ratio
+    private final MonotoneIndexedQueue mq; // the queue of the integer engines, null for the heap engines
+
+    private final double[] dist; // the minimum distance to each node, valid if reached[node] == stamp
+    private final int[] prev; // the node before each node on the shortest path, -1 for the start node
+    private final int[] reached; // the stamp of the query that last reached each node
+    private final int[] settled; // the stamp of the query that last settled each node
+    private final int[] wanted; // the stamp of the one to many query that has each node as a target
+    private int stamp;
+
+    private int lastStart = -1; // the start node of the last query
+    private int settledCount; // the number of nodes settled by the last query
+
+    public DijkstraQueryContext(StaticGraph graph) {
+        this(graph, Engine.AUTO);
+    }
+
+    public DijkstraQueryContext(StaticGraph graph, Engine engine) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        if (engine == null)
+            throw new IllegalArgumentException("Engine cannot be null!");
+
+        this.graph = graph;
+        this.n = graph.getNumberOfNodes();
+
+        // only the integer engines need the largest weight, and the graph scans its weights once for all contexts
+        boolean integer = engine == Engine.AUTO || engine == Engine.RADIX_HEAP || engine == Engine.BUCKET_QUEUE;
+        long maxWeight = integer ? graph.maxIntegerWeight() : -1;
+        if (engine == Engine.AUTO) {
+            if (maxWeight == -1)
+                engine = Engine.D_HEAP;
+            else
+                engine = maxWeight <= MAX_BUCKET_WEIGHT ? Engine.BUCKET_QUEUE : Engine.RADIX_HEAP;
+        } else if ((engine == Engine.RADIX_HEAP || engine == Engine.BUCKET_QUEUE) && maxWeight == -1) {
+            throw new IllegalArgumentException("The " + engine + " engine needs non negative integer weights");
+        }
+        this.engine = engine;
+
+        int size = Math.max(1, n);
+        // the degree is first picked for the ratio expected on the graph, then once more for the one observed
+        if (engine == Engine.D_HEAP)
+            ipq = new MinIndexedDoubleDHeap(DHeapArity.degree("dijkstra", size,
+                    DHeapArity.estimateDecreasesPerPoll(n, graph.getNumberOfEdges())), size);
+        else if (engine == Engine.PAIRING_HEAP)
+            ipq = IndexedDoubleHeap.Kind.PAIRING.create(0, size);
+        else if (engine == Engine.FIBONACCI_HEAP)
+            ipq = IndexedDoubleHeap.Kind.FIBONACCI.create(0, size);
+        if (engine == Engine.BUCKET_QUEUE)
+            mq = new MinIndexedBucketQueue((int) maxWeight, size);
+        else
+            mq = engine == Engine.RADIX_HEAP ? new MinIndexedRadixHeap(size) : null;
+
+        dist = new double[n];
+        prev = new int[n];
+        reached = new int[n];
+        settled = new int[n];
+        wanted = new int[n];
+    }
+
+    public StaticGraph getGraph() {
+        return graph;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Run Dijkstra's algorithm from start node until end node is settled
+     * @param start    start node
+     * @param end      end node, or -1 to settle every node reachable from start
+     * @return the shortest distance to end node if a path exists, or else Double.POSITIVE_INFINITY (always for -1)
+     */
+    public double dijkstra(int start, int end) {
+        if (start < 0 || start >= n || end < -1 || end >= n)
+            throw new IllegalArgumentException("Invalid node index");
+
+        nextStamp();
+        if (end != -1)
+            wanted[end] = stamp;
+        search(start, end == -1 ? Integer.MAX_VALUE : 1); // nothing is wanted for -1, so the search never stops early
+        return end == -1 ? Double.POSITIVE_INFINITY : distance(end);
+    }
+
+    /**
+     * Run Dijkstra's algorithm from start node until every node reachable from it is settled, the distances and
+     * predecessors are copied out to the arrays given
+     * @param start   start node
+     * @param dist    filled with the shortest distance to every node, Double.POSITIVE_INFINITY if unreachable, or null
+     * @param prev    filled with the node before every node on its shortest path, -1 if none, or null
+     */
+    public void oneToAll(int start, double[] dist, int[] prev) {
+        if ((dist != null && dist.length != n) || (prev != null && prev.length != n))
+            throw new IllegalArgumentException("The arrays must have a slot for every node");
+
+        dijkstra(start, -1);
+        for (int node = 0; node < n; node++) {
+            if (dist != null)
+                dist[node] = distance(node);
+            if (prev != null)
+                prev[node] = predecessor(node);
+        }
+    }
+
+    /**
+     * Run Dijkstra's algorithm from start node until every node reachable from it is settled
+     * @param start   start node
+     * @return the shortest distance to every node, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double[] oneToAll(int start) {
+        double[] dist = new double[n];
+        oneToAll(start, dist, null);
+        return dist;
+    }
+
+    /**
+     * Run Dijkstra's algorithm from start node until all the target nodes are settled, which stops the search as
+     * soon as the farthest target is reached rather than exploring the whole graph. The paths to the targets can be
+     * read with {@link #predecessor} or {@link #reconstructPath} afterwards.
+     * @param start     start node
+     * @param targets   the target nodes, duplicates are allowed
+     * @return the shortest distance to each target, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double[] oneToMany(int start, int[] targets) {
+        if (targets == null)
+            throw new IllegalArgumentException("Targets cannot be null!");
+        if (start < 0 || start >= n)
+            throw new IllegalArgumentException("Invalid node index");
+        for (int target : targets) {
+            if (target < 0 || target >= n)
+                throw new IllegalArgumentException("Invalid node index");
+        }
+
+        nextStamp();
+        int remaining = 0; // the number of distinct targets
+        for (int target : targets) {
+            if (wanted[target] != stamp) {
+                wanted[target] = stamp;
+                remaining++;
+            }
+        }
+        search(start, remaining);
+
+        double[] distances = new double[targets.length];
+        for (int i = 0; i < targets.length; i++)
+            distances[i] = distance(targets[i]);
+        return distances;
+    }
+
+    /**
+     * Settle nodes in order of distance from start node, until the given number of wanted nodes are settled or the
+     * reachable nodes run out. Expects the stamp of the query to be taken already.
+     */
+    private void search(int start, int remaining) {
+        clearQueue();
+        lastStart = start;
+        settledCount = 0;
+
+        reached[start] = stamp;
+        dist[start] = 0.0;
+        prev[start] = -1;
+        insert(start, 0.0);
+
+        while (remaining > 0 && !isQueueEmpty()) {
+            int nodeId = pollMin();
+            settled[nodeId] = stamp;
+            settledCount++;
+
+            // stop early as Dijkstra's is greedy and no negative edge weights, the distance of a settled node is final
+            if (wanted[nodeId] == stamp && --remaining == 0)
+                break;
+
+            for (int e = graph.begin(nodeId); e < graph.end(nodeId); e++) {
+                int to = graph.target(e);
+                if (settled[to] == stamp)  // already visited
+                    continue;
+
+                double newDist = dist[nodeId] + graph.weight(e);
+                if (reached[to] != stamp) { // reach the node for the first time
+                    reached[to] = stamp;
+                    dist[to] = newDist;
+                    prev[to] = nodeId;
+                    insert(to, newDist);
+                } else if (newDist < dist[to]) { // find better path
+                    dist[to] = newDist;
+                    prev[to] = nodeId;
+                    decrease(to, newDist);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the distance found by the last query, final for the nodes it settled
+     * @param node the index of the node
+     * @return the distance from the start node, or Double.POSITIVE_INFINITY if the last query did not reach it
+     */
+    public double distance(int node) {
+        return reached[node] == stamp ? dist[node] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Get the predecessor found by the last query
+     * @param node the index of the node
+     * @return the node before it on the shortest path, or -1 for the start node and the nodes not reached
+     */
+    public int predecessor(int node) {
+        return reached[node] == stamp ? prev[node] : -1;
+    }
+
+    /**
+     * Test if the last query settled a node, i.e. its distance and path are final
+     * @param node the index of the node
+     * @return true if settled, or else false
+     */
+    public boolean isSettled(int node) {
+        return settled[node] == stamp;
+    }
+
+    /**
+     * Reconstructs the shortest path from start node to end node. The last query is reused if it started at start
+     * node and settled end node, or else Dijkstra's algorithm is run again.
+     * @param start   start node
+     * @param end     end node
+     * @return an array of node indexes of the shortest path from start to end, or else empty array
+     */
+    public List<Integer> reconstructPath(int start, int end) {
+        if (end < 0 || end >= n || start < 0 || start >= n)
+            throw new IllegalArgumentException("Invalid node index");
+
+        if (start != lastStart || !isSettled(end))
+            dijkstra(start, end);
+
+        List<Integer> path = new ArrayList<>();
+        if (!isSettled(end))
+            return path;
+
+        for (int at = end; at != -1; at = prev[at])
+            path.add(at);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Get the number of nodes settled by the last query
+     * @return the settled node count
+     */
+    public int getSettledCount() {
+        return settledCount;
+    }
+
+    // the queue operations of the engine in use, the integer engines key the nodes by their exact integer distance
+
+    private void clearQueue() {
+        if (mq != null) {
+            mq.clear();
+            return;
+        }
+
+        ipq.clear();
+        if (tuned || engine != Engine.D_HEAP)
+            return;
+        MinIndexedDoubleDHeap heap = (MinIndexedDoubleDHeap) ipq;
+        if (heap.getPollCount() >= TUNE_AFTER_POLLS) {
+            tuned = true;
+            double decreasesPerPoll = (double) heap.getDecreaseCount() / heap.getPollCount();
+            int degree = DHeapArity.degree("dijkstra", Math.max(1, n), decreasesPerPoll);
+            if (degree != heap.getDegree())
+                ipq = new MinIndexedDoubleDHeap(degree, Math.max(1, n));
+        }
+    }
+
+    private boolean isQueueEmpty() {
+        return mq != null ? mq.isEmpty() : ipq.isEmpty();
+    }
+
+    private int pollMin() {
+        return mq != null ? mq.pollMinKeyIndex() : ipq.pollMinKeyIndex();
+    }
+
+    private void insert(int node, double distance) {
+        if (mq != null)
+            mq.insert(node, (long) distance);
+        else
+            ipq.insert(node, distance);
+    }
+
+    private void decrease(int node, double distance) {
+        if (mq != null)
+            mq.decrease(node, (long) distance);
+        else
+            ipq.decrease(node, distance);
+    }
+
+    /**
+     * Find the largest weight of a graph whose weights are all non negative integers, see
+     * {@link StaticGraph#maxIntegerWeight()} for the cached value
+     * @return the largest weight, 0 if there are no edges, or -1 if some weight is negative or not an integer
+     */
+    static long maxIntegerWeight(StaticGraph graph) {
+        if (!graph.isWeighted())
+            return graph.getNumberOfEdges() == 0 ? 0 : 1;
+
+        long max = 0;
+        for (int e = 0; e < graph.getNumberOfEdges(); e++) {
+            double weight = graph.weight(e);
+            // weights past the int range are left to the D-ary heap, integer distances must stay below 2^53 to be exact
+            if (!(weight >= 0 && weight <= Integer.MAX_VALUE) || weight != Math.rint(weight))
+                return -1;
+            max = Math.max(max, (long) weight);
+        }
+        return max;
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) { // start over before the stamp wraps around
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            Arrays.fill(wanted, 0);
+            stamp = 1;
+        }
+    }
+}
@@ -1,10 +1,6 @@
 package leightek.graphtheory;
 
-import leightek.datastructure.pq.MinIndexedDHeap;
-
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -26,15 +22,28 @@ public class DijkstrasShortestPathWithDHeap {
     private final int n; // the number of nodes in the graph
 
     private int edgeCount;
-    private double[] dist; // an array to the minimum distance to each node
-    private Integer[] prev;
     private List<List<Edge>> graph;
+    private StaticGraph csr; // the compact graph the search runs on, rebuilt from graph after edges are added
+    private DijkstraQueryContext context; // the search state reused by every query, rebuilt with csr
+    private DijkstraQueryContext.Engine engine = DijkstraQueryContext.Engine.AUTO; // the queue the search runs on
 
     public DijkstrasShortestPathWithDHeap(int n) {
         this.n = n;
         createEmptyGraph();
     }
 
+    /**
+     * Create a solver on a CSR graph, no adjacency list is kept and edges can't be added afterwards
+     * @param graph the CSR graph, the weights can't be negative
+     */
+    public DijkstrasShortestPathWithDHeap(StaticGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        this.n = graph.getNumberOfNodes();
+        this.edgeCount = graph.getNumberOfEdges();
+        this.csr = graph;
+    }
+
     /**
      * Constrct an empty graph with n nodes with the source and sink nodes.
      */
@@ -51,82 +60,100 @@ public class DijkstrasShortestPathWithDHeap {
      * @param cost   the cost, can't be negative
      */
     public void addEdge(int from, int to, int cost) {
+        if (graph == null)
+            throw new UnsupportedOperationException("Cannot add edges to a solver created from a CSR graph");
         edgeCount++;
         graph.get(from).add(new Edge(to, cost));
+        csr = null;
+        context = null;
     }
 
+    /**
+     * Get the adjacency list of the graph
+     * @return the adjacency list, or null if the solver was created from a CSR graph
+     */
     public List<List<Edge>> getGraph() {
         return graph;
     }
 
     /**
-     * Run Dijkstra's algorithm on a directed graph to find the shortest path
+     * Get the graph in CSR layout, built from the adjacency list when edges were added since the last call
+     * @return the CSR graph
+     */
+    public StaticGraph getCsrGraph() {
+        if (csr == null) {
+            CsrGraph.Builder builder = CsrGraph.builder(n, edgeCount);
+            for (int from = 0; from < n; from++) {
+                for (Edge edge : graph.get(from))
+                    builder.addEdge(from, edge.to, edge.cost);
+            }
+            csr = builder.build();
+        }
+        return csr;
+    }
+
+    /**
+     * Get the query context the solver runs on, the distances and predecessors of the last query can be read from it
+     * @return the query context
+     */
+    public DijkstraQueryContext getQueryContext() {
+        if (context == null)
+            context = new DijkstraQueryContext(getCsrGraph(), engine);
+        return context;
+    }
+
+    /**
+     * Choose the priority queue of the search. By default a bucket queue or a radix heap is picked, as the costs
+     * of {@link #addEdge} are integers, and a D-ary heap for graphs with fractional weights.
+     * @param engine the engine to use
+     */
+    public void setEngine(DijkstraQueryContext.Engine engine) {
+        if (engine == null)
+            throw new IllegalArgumentException("Engine cannot be null!");
+        this.engine = engine;
+        context = null;
+    }
+
+    /**
+     * Run Dijkstra's algorithm on a directed graph to find the shortest path. The search state is kept between
+     * calls, so a query only costs time proportional to the part of the graph it explores.
      * @param start    start node
      * @param end      end node
      * @return the shortest path if exists, or else Double.POSITIVE_INFINITY
      */
     public double dijkstra(int start, int end) {
+        return getQueryContext().dijkstra(start, end);
+    }
 
-        int degree = edgeCount / n;
-        MinIndexedDHeap<Double> ipq = new MinIndexedDHeap<>(degree, n); // keep an Indexed Priority Queue of the next
-                                                                        // most promising node to visit
-        ipq.insert(start, 0.0);
-
-        dist = new double[n];
-        Arrays.fill(dist, Double.POSITIVE_INFINITY);
-        dist[start] = 0.0;
-
-        boolean[] visited = new boolean[n];
-        prev = new Integer[n];
-
-        while (!ipq.isEmpty()) {
-            int nodeId = ipq.peekMinKeyIndex();
-            visited[nodeId] = true;
-            double minValue = ipq.pollMinValue();
-
-            if (minValue > dist[nodeId])  // compare with existing path
-                continue;
-
-            for (Edge edge : graph.get(nodeId)) {
-                if (visited[edge.to])  // already visited
-                    continue;
-
-                double newDist = dist[nodeId] + edge.cost;
-                if (newDist < dist[edge.to]) { // find better path
-                    prev[edge.to] = nodeId;
-                    dist[edge.to] = newDist;
-                    if (!ipq.contains(edge.to))
-                        ipq.insert(edge.to, newDist); // insert the node with cost into the PQ for the first time
-                    else
-                        ipq.decrease(edge.to, newDist); // update the node with decreased cost
-                }
-            }
-            if (nodeId == end)
-                return dist[end]; // return the end node early as Dijkstra's is greedy and no negative edge weights
-        }
+    /**
+     * Run Dijkstra's algorithm from start node to every node it can reach in one pass, the predecessors are left in
+     * the query context
+     * @param start    start node
+     * @return the shortest distance to every node, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double[] oneToAll(int start) {
+        return getQueryContext().oneToAll(start);
+    }
 
-        return Double.POSITIVE_INFINITY; // the end node is unreachable
+    /**
+     * Run Dijkstra's algorithm from start node until all the target nodes are settled, the predecessors are left in
+     * the query context
+     * @param start     start node
+     * @param targets   the target nodes
+     * @return the shortest distance to each target, Double.POSITIVE_INFINITY if unreachable
+     */
+    public double[] oneToMany(int start, int[] targets) {
+        return getQueryContext().oneToMany(start, targets);
     }
 
     /**
-     * Reconstructs the shortest path from start node to end node
+     * Reconstructs the shortest path from start node to end node, reusing the last query if it matches
      * @param start   start node
      * @param end     end node
      * @return an array of node indexes of the shortest path from start to end, or else empty array
      */
     public List<Integer> reconstructPath(int start, int end) {
-        if (end < 0 || end >= n || start < 0 || start >= n)
-            throw new IllegalArgumentException("Invalid node index");
-
-        List<Integer> path = new ArrayList<>();
-        double dist = dijkstra(start, end);
-        if (dist == Double.POSITIVE_INFINITY)
-            return path;
-
-        for (Integer at = end; at != null; at = prev[at])
-            path.add(at);
-        Collections.reverse(path);
-        return path;
+        return getQueryContext().reconstructPath(start, end);
     }
 
 }
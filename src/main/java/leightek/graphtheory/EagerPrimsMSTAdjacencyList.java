@@ -1,6 +1,7 @@
 package leightek.graphtheory;
 
-import leightek.datastructure.pq.MinIndexedDHeap;
+import leightek.datastructure.pq.DHeapArity;
+import leightek.datastructure.pq.IndexedDoubleHeap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,11 +39,14 @@ public class EagerPrimsMSTAdjacencyList {
 
     private final int n;
     private final List<List<Edge>> graph;
+    private final StaticGraph csr; // set instead of graph when built from a CSR graph
 
     private boolean solved;
     private boolean mstExists;
     private boolean[] visited;
-    private MinIndexedDHeap<Edge> ipq;
+    private IndexedDoubleHeap.Kind heapKind = IndexedDoubleHeap.Kind.D_ARY;
+    private IndexedDoubleHeap ipq; // keyed by the cost of the cheapest known edge to each node
+    private int[] bestFrom; // the start node of the cheapest known edge to each node, index as the node id
 
     private long minCostSum;
     private Edge[] mstEdges;
@@ -53,6 +57,39 @@ public class EagerPrimsMSTAdjacencyList {
 
         this.n = graph.size();
         this.graph = graph;
+        this.csr = null;
+    }
+
+    /**
+     * Create a solver on an undirected CSR graph, i.e. every edge must be present in both directions
+     * @param graph the CSR graph, the edge weights must be int values
+     */
+    public EagerPrimsMSTAdjacencyList(StaticGraph graph) {
+        if (graph == null || graph.getNumberOfNodes() == 0)
+            throw new IllegalArgumentException();
+
+        for (int e = 0; e < graph.getNumberOfEdges(); e++) {
+            double cost = graph.weight(e);
+            if (cost != (int) cost)
+                throw new IllegalArgumentException("Edge cost must be an int; received: " + cost);
+        }
+
+        this.n = graph.getNumberOfNodes();
+        this.graph = null;
+        this.csr = graph;
+    }
+
+    /**
+     * Choose the heap the cheapest edges are kept in, a D-ary heap by default. On dense graphs most edges decrease
+     * the cost of a node, which a pairing or Fibonacci heap does in O(1) amortized.
+     * @param heapKind the heap implementation to use
+     */
+    public void setHeapKind(IndexedDoubleHeap.Kind heapKind) {
+        if (heapKind == null)
+            throw new IllegalArgumentException("Heap kind cannot be null!");
+        this.heapKind = heapKind;
+        solved = false;
+        minCostSum = 0;
     }
 
     /**
@@ -82,13 +119,20 @@ public class EagerPrimsMSTAdjacencyList {
         visited = new boolean[n];
         mstEdges = new Edge[m];
 
-        int degree = (int) Math.ceil(Math.log(n) / Math.log(2));
-        ipq = new MinIndexedDHeap<>(Math.max(2, degree), n);
+        long edges = 0;
+        if (csr != null) {
+            edges = csr.getNumberOfEdges();
+        } else {
+            for (List<Edge> edgesAtNode : graph)
+                edges += edgesAtNode.size();
+        }
+        ipq = heapKind.create(DHeapArity.degree("prims", n, DHeapArity.estimateDecreasesPerPoll(n, edges)), n);
+        bestFrom = new int[n];
         relaxEdgesAtNode(0);
 
         while (!ipq.isEmpty() && edgeCount != m) {
             int destNodeIndex = ipq.peekMinKeyIndex();
-            Edge edge = ipq.pollMinValue();
+            Edge edge = new Edge(bestFrom[destNodeIndex], destNodeIndex, (int) ipq.pollMinValue());
 
             mstEdges[edgeCount++] = edge;
             minCostSum += edge.cost;
@@ -103,19 +147,28 @@ public class EagerPrimsMSTAdjacencyList {
 
     private void relaxEdgesAtNode(int currentNodeIndex) {
         visited[currentNodeIndex] = true;
-        List<Edge> edges = graph.get(currentNodeIndex);
 
-        for (Edge edge: edges) {
-            int destNodeIndex = edge.to;
+        if (csr != null) {
+            for (int e = csr.begin(currentNodeIndex); e < csr.end(currentNodeIndex); e++)
+                relaxEdge(currentNodeIndex, csr.target(e), (long) csr.weight(e));
+            return;
+        }
 
-            if (visited[destNodeIndex])
-                continue;
+        List<Edge> edges = graph.get(currentNodeIndex);
+        for (Edge edge: edges)
+            relaxEdge(edge.from, edge.to, edge.cost);
+    }
+
+    private void relaxEdge(int from, int destNodeIndex, long cost) {
+        if (visited[destNodeIndex])
+            return;
 
-            if (!ipq.contains(destNodeIndex))
-                ipq.insert(destNodeIndex, edge);
-            else
-                ipq.decrease(destNodeIndex, edge); // try to choose the cheapest edge for the destination node of the
-                                                   // current edge
+        if (!ipq.contains(destNodeIndex)) {
+            ipq.insert(destNodeIndex, cost);
+            bestFrom[destNodeIndex] = from;
+        } else if (cost < ipq.valueOf(destNodeIndex)) {
+            ipq.decrease(destNodeIndex, cost); // choose the cheapest edge for the destination node of the current
+            bestFrom[destNodeIndex] = from;    // edge
         }
     }
 
@@ -181,5 +234,13 @@ public class EagerPrimsMSTAdjacencyList {
             System.out.println("MST cost: " + minCost);
             System.out.println("MST edges: " + Arrays.toString(solver.getMST()));
         }
+
+        CsrGraph.Builder builder = CsrGraph.builder(n);
+        for (List<Edge> edges : g) {
+            for (Edge edge : edges)
+                builder.addEdge(edge.from, edge.to, edge.cost);
+        }
+        EagerPrimsMSTAdjacencyList csrSolver = new EagerPrimsMSTAdjacencyList(builder.build());
+        System.out.println("MST cost (CSR graph): " + csrSolver.getMstCost());
     }
 }
@@ -15,6 +15,7 @@ public class EulerianPathDirectedEdgesAdjacencyList {
     private int[] in, out;
     private LinkedList<Integer> path;
     private List<List<Integer>> graph;
+    private StaticGraph csr; // set instead of graph when built from a CSR graph
 
     public EulerianPathDirectedEdgesAdjacencyList(List<List<Integer>> graph) {
         if (graph == null)
@@ -24,6 +25,18 @@ public class EulerianPathDirectedEdgesAdjacencyList {
         path = new LinkedList<>();
     }
 
+    /**
+     * Create a solver on a CSR graph. The path is built with an explicit stack straight into an int array, so long
+     * paths neither overflow the thread stack nor box every node.
+     * @param graph the CSR graph
+     */
+    public EulerianPathDirectedEdgesAdjacencyList(StaticGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        n = graph.getNumberOfNodes();
+        csr = graph;
+    }
+
     /**
      * Get Eulerian path, a list of edgeCount + 1 node ids
      * @return the Eulerian path as an int array, or null if the graph is disconnected
@@ -34,6 +47,9 @@ public class EulerianPathDirectedEdgesAdjacencyList {
         if (!graphHasEulerianPath())
             return null;
 
+        if (csr != null)
+            return dfsCsr(findStartNode());
+
         dfs(findStartNode());
 
         // Traverse all edges of the graph
@@ -53,6 +69,16 @@ public class EulerianPathDirectedEdgesAdjacencyList {
 
         edgeCount = 0;
 
+        if (csr != null) {
+            for (int from = 0; from < n; from++) {
+                for (int e = csr.begin(from); e < csr.end(from); e++)
+                    in[csr.target(e)]++;
+                out[from] = csr.degree(from);
+            }
+            edgeCount = csr.getNumberOfEdges();
+            return;
+        }
+
         for (int from = 0; from < n; from++) {
             for (int to : graph.get(from)) {
                 in[to]++;
@@ -100,6 +126,27 @@ public class EulerianPathDirectedEdgesAdjacencyList {
         path.addFirst(at);
     }
 
+    // Same as dfs but iterative, the nodes are written to the solution from the back as they are finished
+    private int[] dfsCsr(int start) {
+        int[] stack = new int[edgeCount + 1];
+        int[] solution = new int[edgeCount + 1];
+        int top = 0, pos = solution.length;
+        stack[top++] = start;
+
+        while (top > 0) {
+            int at = stack[top - 1];
+            if (out[at] != 0) {
+                stack[top++] = csr.target(csr.begin(at) + --out[at]);
+            } else {
+                top--;
+                solution[--pos] = at; // every push used up an edge, so at most edgeCount + 1 nodes get here
+            }
+        }
+
+        // Traverse all edges of the graph
+        return pos == 0 ? solution : null; // the graph is disconnected if some edges were not traversed
+    }
+
     public static List<List<Integer>> initializeEmptyGraph(int n) {
         List<List<Integer>> graph = new ArrayList<>(n);
 
@@ -131,5 +178,9 @@ public class EulerianPathDirectedEdgesAdjacencyList {
         EulerianPathDirectedEdgesAdjacencyList solver = new EulerianPathDirectedEdgesAdjacencyList(graph);
 
         System.out.println(Arrays.toString(solver.getEulerianPath())); // [1,3, 5, 6, 3, 2, 4, 3, 1, 2, 2, 4, 6]
+
+        EulerianPathDirectedEdgesAdjacencyList csrSolver =
+                new EulerianPathDirectedEdgesAdjacencyList(CsrGraph.fromAdjacencyList(graph));
+        System.out.println(Arrays.toString(csrSolver.getEulerianPath()));
     }
 }
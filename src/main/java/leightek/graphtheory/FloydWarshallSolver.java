@@ -1,9 +1,12 @@
 package leightek.graphtheory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
 
 import static java.lang.Double.NEGATIVE_INFINITY;
 import static java.lang.Double.POSITIVE_INFINITY;
@@ -11,25 +14,30 @@ import static java.lang.Double.POSITIVE_INFINITY;
 /**
  * Floyd Warshall algorithm, solution of APSP (all pairs of the shortest paths) between nodes in a directed graph and
  * also detects negative cycles. Uses DP (dynamic programming).
+ *
+ * The next hops are kept in a flat short[] (int[] from 32767 nodes on), see {@link NextHopMatrix}, and the paths are
+ * walked from them on demand by {@link #shortestPathIterator(int, int)}, so the solution of n = 20,000 nodes takes the
+ * 3.2GB of its distances and 800MB of next hops, not n * n boxed Integers and lists.
+ *
+ * Once solved, new edges and lower weights are applied in place in O(n^2) per edge, see
+ * {@link #decreaseEdges(int[], int[], double[])}, instead of solving the whole graph again.
  */
 public class FloydWarshallSolver {
 
     private int n; // the size of the adjacency matrix
     private boolean solved;
     private double[][] dp; // the memo table that will contain APSP solution
-    private Integer[][] next; // the matrix used to reconstruct the shortest paths
-
-    private static final int REACHES_NEGATIVE_CYCLE = -1;
+    private NextHopMatrix next; // the matrix used to reconstruct the shortest paths
 
     public FloydWarshallSolver(double[][] matrix) {
         n = matrix.length;
         dp = new double[n][n];
-        next = new Integer[n][n];
+        next = NextHopMatrix.create(n);
 
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
                 if (matrix[i][j] != POSITIVE_INFINITY)
-                    next[i][j] = j;
+                    next.set(i, j, j);
                 dp[i][j] = matrix[i][j];
             }
         }
@@ -41,26 +49,12 @@ public class FloydWarshallSolver {
      */
     public double[][] getAPSPMatrix() {
         if (!solved) {
-            for (int k = 0; k < n; k ++) {
-                for (int i = 0; i < n; i++) {
-                    for (int j = 0; j < n; j++) {
-                        if (dp[i][k] + dp[k][j] < dp[i][j]) {
-                            dp[i][j] = dp[i][k] + dp[k][j];
-                            next[i][j] = next[i][k];
-                        }
-                    }
-                }
-            }
+            for (int k = 0; k < n; k ++)
+                relaxThrough(k);
 
             for (int k = 0; k < n; k++) {
-                for (int i = 0; i < n; i++) {
-                    for (int j = 0; j < n; j++) {
-                        if (dp[i][k] != POSITIVE_INFINITY && dp[k][j] != POSITIVE_INFINITY && dp[k][k] < 0) {
-                            dp[i][j] = NEGATIVE_INFINITY;
-                            next[i][j] = REACHES_NEGATIVE_CYCLE;
-                        }
-                    }
-                }
+                if (dp[k][k] < 0)
+                    markNegativeCycle(k);
             }
 
             solved = true;
@@ -69,6 +63,104 @@ public class FloydWarshallSolver {
         return dp;
     }
 
+    /**
+     * Write the APSP matrix to a memory-mapped file, for services that query distances without holding the matrix.
+     * For graphs whose matrix does not fit on the heap see {@link MappedFloydWarshall}.
+     * @param file        the path of the file, replaced if it exists
+     * @param precision   the type the distances are stored as
+     * @return the matrix file, mapped for reading and writing
+     * @throws IOException if the file can't be written
+     */
+    public MappedDistanceMatrix writeAPSPMatrix(Path file, MappedDistanceMatrix.Precision precision)
+            throws IOException {
+        getAPSPMatrix();
+        MappedDistanceMatrix matrix = MappedDistanceMatrix.create(file, n, precision);
+        for (int i = 0; i < n; i++)
+            matrix.writeRow(i, dp[i]);
+        return matrix;
+    }
+
+    /**
+     * Add an edge, or lower the weight of one, and update the APSP matrix, see decreaseEdges
+     * @param i the start node of the edge
+     * @param j the end node of the edge
+     * @param w the weight of the edge
+     */
+    public void decreaseEdge(int i, int j, double w) {
+        decreaseEdges(new int[] {i}, new int[] {j}, new double[] {w});
+    }
+
+    /**
+     * Add an edge and update the APSP matrix, the same as decreasing its weight from POSITIVE_INFINITY
+     * @param i the start node of the edge
+     * @param j the end node of the edge
+     * @param w the weight of the edge
+     */
+    public void addEdge(int i, int j, double w) {
+        decreaseEdge(i, j, w);
+    }
+
+    /**
+     * Add edges, or lower their weights, and update the APSP matrix and the next hops in one pass, O(n^2) for every
+     * distinct start node plus O(n) for every edge. Each start node i first takes the shortcut w + dp[j][v] to every
+     * v, then every pair is relaxed through i, and a new negative cycle, which must pass one of the start nodes, is
+     * marked from it. An edge no lighter than the shortest path it spans changes nothing. Raising a weight or removing
+     * an edge is not supported, that needs a new solver.
+     * @param from      the start node of every edge
+     * @param to        the end node of every edge
+     * @param weights   the new weight of every edge
+     */
+    public void decreaseEdges(int[] from, int[] to, double[] weights) {
+        if (from == null || to == null || weights == null || from.length != to.length || from.length != weights.length)
+            throw new IllegalArgumentException("from, to and weights must be of the same length");
+        for (int e = 0; e < from.length; e++) {
+            if (from[e] < 0 || from[e] >= n || to[e] < 0 || to[e] >= n)
+                throw new IllegalArgumentException("Invalid node index");
+            if (Double.isNaN(weights[e]))
+                throw new IllegalArgumentException("weight cannot be NaN");
+        }
+
+        if (!solved) { // not solved yet, the edges only change the adjacency matrix
+            for (int e = 0; e < from.length; e++) {
+                if (weights[e] < dp[from[e]][to[e]]) {
+                    dp[from[e]][to[e]] = weights[e];
+                    next.set(from[e], to[e], to[e]);
+                }
+            }
+            return;
+        }
+
+        boolean[] changed = new boolean[n]; // the start nodes whose rows took a shortcut
+        int[] sources = new int[from.length];
+        int count = 0;
+        for (int e = 0; e < from.length; e++) {
+            int i = from[e], j = to[e];
+            double w = weights[e];
+            if (!(w < dp[i][j]))
+                continue;
+
+            double[] dpi = dp[i], dpj = dp[j];
+            for (int v = 0; v < n; v++) {
+                double d = w + dpj[v];
+                if (d < dpi[v]) {
+                    dpi[v] = d;
+                    next.set(i, v, d == NEGATIVE_INFINITY ? NextHopMatrix.REACHES_NEGATIVE_CYCLE : j);
+                }
+            }
+            if (!changed[i]) {
+                changed[i] = true;
+                sources[count++] = i;
+            }
+        }
+
+        for (int c = 0; c < count; c++)
+            relaxThrough(sources[c]);
+        for (int c = 0; c < count; c++) {
+            if (dp[sources[c]][sources[c]] < 0)
+                markNegativeCycle(sources[c]);
+        }
+    }
+
     /**
      * Reconstruct the shortest path from start node to the end node
      * @param start start node
@@ -76,23 +168,60 @@ public class FloydWarshallSolver {
      * @return the shortest path, could be null or empty
      */
     public List<Integer> reconstructShortestPath(int start, int end) {
-        getAPSPMatrix();
+        PrimitiveIterator.OfInt it = shortestPathIterator(start, end);
+        if (it == null)
+            return null;
+
         List<Integer> path = new ArrayList<>();
+        it.forEachRemaining((int node) -> path.add(node));
+        return path;
+    }
 
-        if (dp[start][end] != POSITIVE_INFINITY) {
-            int at = start;
-            for (; at != end; at = next[at][end]) {
-                if (at == REACHES_NEGATIVE_CYCLE)
-                    return null;
-                path.add(at);
-            }
+    /**
+     * Walk the shortest path from start node to the end node, one next hop per node, without building it
+     * @param start start node
+     * @param end end node
+     * @return the nodes of the shortest path, empty if end is not reachable, or null if a negative cycle is on the way
+     */
+    public PrimitiveIterator.OfInt shortestPathIterator(int start, int end) {
+        if (start < 0 || start >= n || end < 0 || end >= n)
+            throw new IllegalArgumentException("Invalid node index");
+        getAPSPMatrix();
 
-            if (next[at][end] == REACHES_NEGATIVE_CYCLE)
-                return null;
-            path.add(end);
+        if (dp[start][end] == NEGATIVE_INFINITY)
+            return null;
+        if (dp[start][end] == POSITIVE_INFINITY)
+            return IntStream.empty().iterator();
+        return next.path(start, end);
+    }
+
+    /**
+     * Relax every pair through node k, the DP step of Floyd Warshall algorithm, a row at a time on the min-plus kernel
+     */
+    private void relaxThrough(int k) {
+        double[] dpk = dp[k];
+        for (int i = 0; i < n; i++) {
+            double dik = dp[i][k];
+            if (dik != POSITIVE_INFINITY)
+                next.relaxRow(i, k, dp[i], dik, dpk);
         }
+    }
 
-        return path;
+    /**
+     * Mark every pair i, j with node k, which is on a negative cycle, on the way from i to j
+     */
+    private void markNegativeCycle(int k) {
+        double[] dpk = dp[k];
+        for (int i = 0; i < n; i++) {
+            if (dp[i][k] == POSITIVE_INFINITY)
+                continue;
+            for (int j = 0; j < n; j++) {
+                if (dpk[j] != POSITIVE_INFINITY) {
+                    dp[i][j] = NEGATIVE_INFINITY;
+                    next.set(i, j, NextHopMatrix.REACHES_NEGATIVE_CYCLE);
+                }
+            }
+        }
     }
 
     /**
@@ -119,21 +248,22 @@ public class FloydWarshallSolver {
         }
         System.out.println();
 
+        StringBuilder sb = new StringBuilder();
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                List<Integer> path = reconstructShortestPath(i, j);
-                String pathString;
+                PrimitiveIterator.OfInt path = shortestPathIterator(i, j);
+                sb.setLength(0);
 
                 if (path == null) {
-                    pathString = "reaches negative cycle!";
-                } else if (path.size() == 0) {
-                    pathString = "does not exist!";
+                    sb.append("reaches negative cycle!");
+                } else if (!path.hasNext()) {
+                    sb.append("does not exist!");
                 } else {
-                    pathString = path.stream()
-                            .map(String::valueOf)
-                            .collect(Collectors.joining(" -> "));
+                    sb.append(path.nextInt());
+                    while (path.hasNext())
+                        sb.append(" -> ").append(path.nextInt());
                 }
-                System.out.printf("The shortest path from node %d to node %d: %s\n", i, j, pathString);
+                System.out.printf("The shortest path from node %d to node %d: %s\n", i, j, sb);
             }
 
         }
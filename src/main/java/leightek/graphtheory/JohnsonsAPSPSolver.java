@@ -0,0 +1,376 @@
+package leightek.graphtheory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * Johnson's algorithm, APSP (all pairs of the shortest paths) of a sparse directed graph in O(nm log n) instead of the
+ * O(n^3) of {@link FloydWarshallSolver}, with the same matrix: 0 on the diagonal, POSITIVE_INFINITY if there is no
+ * path and NEGATIVE_INFINITY if a negative cycle is on the way.
+ *
+ * Bellman Ford from a virtual source with a zero edge to every node gives each node a potential h, and reweighting
+ * every edge u -> v to w + h(u) - h(v) makes it non negative without changing which paths are shortest. Then a
+ * Dijkstra from every node on a D-ary heap, in parallel on a fork-join pool, gives the rows of the matrix.
+ *
+ * A graph with a negative cycle has no potentials. The cycles are found per SCC, and the nodes of the SCCs holding
+ * one are taken out of the graph for the reweighting and the Dijkstras. A pair is then NEGATIVE_INFINITY if i reaches
+ * one of those nodes and it reaches j, just as in Floyd Warshall, and the distance found without them otherwise.
+ */
+public class JohnsonsAPSPSolver {
+
+    private static final int CHUNK_SIZE = 16; // the number of sources a worker claims at a time
+
+    private final int n; // the number of nodes
+    private final StaticGraph graph;
+    private final ForkJoinPool pool;
+    private boolean solved;
+    private double[][] dp; // the APSP matrix
+    private double[] h; // the potential of every node, POSITIVE_INFINITY if it is on a negative cycle
+    private boolean[] onNegativeCycle; // the nodes of the SCCs holding a negative cycle, null if there is none
+    private CsrGraph reweighted; // the graph without the negative cycle nodes and its weights made non negative
+    private DijkstraQueryContext pathContext; // the context of reconstructShortestPath
+
+    public JohnsonsAPSPSolver(StaticGraph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a solver running its Dijkstras on a pool
+     * @param graph   the graph, never modified
+     * @param pool    the pool the sources are spread over
+     */
+    public JohnsonsAPSPSolver(StaticGraph graph, ForkJoinPool pool) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        if (pool == null)
+            throw new IllegalArgumentException("Pool cannot be null!");
+
+        this.n = graph.getNumberOfNodes();
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    /**
+     * Run Johnson's algorithm to compute APSP and detect negative cycles
+     * @return the APSP matrix
+     */
+    public double[][] getAPSPMatrix() {
+        if (!solved) {
+            double[][] matrix = new double[n][];
+            forEachRow(true, (i, row) -> matrix[i] = row);
+            dp = matrix;
+            solved = true;
+        }
+
+        return dp;
+    }
+
+    /**
+     * Write the APSP matrix to a memory-mapped file. If the matrix is not solved yet, the rows go to the file as the
+     * workers compute them and the matrix is never held on the heap, so it can be larger than the heap.
+     * @param file        the path of the file, replaced if it exists
+     * @param precision   the type the distances are stored as
+     * @return the matrix file, mapped for reading and writing
+     * @throws IOException if the file can't be written
+     */
+    public MappedDistanceMatrix writeAPSPMatrix(Path file, MappedDistanceMatrix.Precision precision)
+            throws IOException {
+        MappedDistanceMatrix matrix = MappedDistanceMatrix.create(file, n, precision);
+        if (solved) {
+            for (int i = 0; i < n; i++)
+                matrix.writeRow(i, dp[i]);
+        } else {
+            forEachRow(false, matrix::writeRow);
+        }
+        return matrix;
+    }
+
+    public double distance(int start, int end) {
+        nodesInBoundsOrThrow(start, end);
+        return getAPSPMatrix()[start][end];
+    }
+
+    /**
+     * Reconstruct the shortest path from start node to the end node with one more Dijkstra from start on the
+     * reweighted graph, so no next hop matrix is kept. Not thread-safe.
+     * @param start start node
+     * @param end end node
+     * @return the shortest path, empty if end is not reachable, or null if a negative cycle is on the way
+     */
+    public List<Integer> reconstructShortestPath(int start, int end) {
+        double distance = distance(start, end);
+        if (distance == NEGATIVE_INFINITY)
+            return null;
+        if (distance == POSITIVE_INFINITY)
+            return new ArrayList<>();
+
+        if (pathContext == null)
+            pathContext = new DijkstraQueryContext(reweighted, DijkstraQueryContext.Engine.D_HEAP);
+        return pathContext.reconstructPath(start, end);
+    }
+
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    // Helper functions
+
+    // takes each row of the matrix as a worker computes it
+    private interface RowSink {
+        void accept(int i, double[] row);
+    }
+
+    /**
+     * Compute the rows of the matrix on the workers, which claim the sources CHUNK_SIZE at a time
+     * @param keepRows  whether the sink keeps the rows, or else every worker reuses a single row
+     * @param sink      takes the rows, called by the workers
+     */
+    private void forEachRow(boolean keepRows, RowSink sink) {
+        if (reweighted == null)
+            reweight();
+
+        AtomicInteger cursor = new AtomicInteger(); // the first source not claimed by a worker yet
+        int workers = Math.min(pool.getParallelism(), (n + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            tasks.add(pool.submit(() -> {
+                Rows rows = new Rows();
+                double[] buffer = keepRows ? null : new double[n];
+                for (int first; (first = cursor.getAndAdd(CHUNK_SIZE)) < n; ) {
+                    for (int i = first; i < Math.min(first + CHUNK_SIZE, n); i++) {
+                        double[] row = keepRows ? new double[n] : buffer;
+                        rows.solve(i, row);
+                        sink.accept(i, row);
+                    }
+                }
+            }));
+        }
+        // joining every task also publishes the rows written by the workers to this thread
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+    }
+
+    /**
+     * Find the potentials with Bellman Ford, taking the nodes of negative cycles out first if there are any, and build
+     * the reweighted graph
+     */
+    private void reweight() {
+        h = bellmanFordFromVirtualSource(null);
+        for (int u = 0; u < n; u++) {
+            if (h[u] == NEGATIVE_INFINITY) {
+                onNegativeCycle = findNegativeCycleNodes();
+                h = bellmanFordFromVirtualSource(onNegativeCycle);
+                break;
+            }
+        }
+
+        CsrGraph.Builder builder = CsrGraph.builder(n, graph.getNumberOfEdges());
+        for (int u = 0; u < n; u++) {
+            if (onNegativeCycle != null && onNegativeCycle[u])
+                continue;
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                int v = graph.target(e);
+                if (onNegativeCycle == null || !onNegativeCycle[v])
+                    builder.addEdge(u, v, Math.max(0, graph.weight(e) + h[u] - h[v])); // rounding stays >= 0
+            }
+        }
+        reweighted = builder.build();
+    }
+
+    /**
+     * Run Bellman Ford from a virtual node n with a zero edge to every node
+     * @param excluded  the nodes to leave out with their edges, or null
+     * @return the distance of every node from the virtual node, NEGATIVE_INFINITY if a negative cycle reaches it
+     */
+    private double[] bellmanFordFromVirtualSource(boolean[] excluded) {
+        List<BellmanFordEdgeList.Edge> edges = new ArrayList<>(graph.getNumberOfEdges() + n);
+        for (int u = 0; u < n; u++) {
+            if (excluded != null && excluded[u])
+                continue;
+            edges.add(new BellmanFordEdgeList.Edge(n, u, 0));
+            for (int e = graph.begin(u); e < graph.end(u); e++) {
+                if (excluded == null || !excluded[graph.target(e)])
+                    edges.add(new BellmanFordEdgeList.Edge(u, graph.target(e), graph.weight(e)));
+            }
+        }
+        return BellmanFordEdgeList.bellmanFord(edges.toArray(new BellmanFordEdgeList.Edge[0]), n + 1, n);
+    }
+
+    /**
+     * Find the nodes on a negative closed walk, i.e. the nodes of every SCC holding a negative cycle. Only the SCCs
+     * a negative cycle reaches can hold one, and each of those runs Bellman Ford on its own edges.
+     * @return whether each node is on a negative closed walk
+     */
+    private boolean[] findNegativeCycleNodes() {
+        int[] sccs = new TarjanSccAdjacencyList(graph).getSccs();
+        int sccCount = 0;
+        for (int scc : sccs)
+            sccCount = Math.max(sccCount, scc + 1);
+
+        // group the nodes by SCC with a counting sort
+        int[] offsets = new int[sccCount + 1];
+        for (int u = 0; u < n; u++)
+            offsets[sccs[u] + 1]++;
+        for (int c = 0; c < sccCount; c++)
+            offsets[c + 1] += offsets[c];
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(offsets, sccCount);
+        for (int u = 0; u < n; u++)
+            members[fill[sccs[u]]++] = u;
+
+        boolean[] negative = new boolean[n];
+        int[] local = new int[n]; // the index of a node within its SCC
+        for (int c = 0; c < sccCount; c++) {
+            int from = offsets[c], size = offsets[c + 1] - from;
+            if (h[members[from]] != NEGATIVE_INFINITY)
+                continue; // a negative cycle would have made every node of the SCC NEGATIVE_INFINITY
+
+            List<BellmanFordEdgeList.Edge> edges = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                int u = members[from + i];
+                local[u] = i;
+                edges.add(new BellmanFordEdgeList.Edge(size, i, 0));
+            }
+            for (int i = 0; i < size; i++) {
+                int u = members[from + i];
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (sccs[v] == c)
+                        edges.add(new BellmanFordEdgeList.Edge(i, local[v], graph.weight(e)));
+                }
+            }
+
+            double[] dist = BellmanFordEdgeList.bellmanFord(edges.toArray(new BellmanFordEdgeList.Edge[0]),
+                    size + 1, size);
+            for (int i = 0; i < size; i++) {
+                if (dist[i] == NEGATIVE_INFINITY) {
+                    for (int j = 0; j < size; j++)
+                        negative[members[from + j]] = true;
+                    break;
+                }
+            }
+        }
+        return negative;
+    }
+
+    private void nodesInBoundsOrThrow(int start, int end) {
+        if (start < 0 || start >= n || end < 0 || end >= n)
+            throw new IllegalArgumentException("Invalid node index");
+    }
+
+    /**
+     * The search state of one worker, computing one row of the matrix at a time
+     */
+    private final class Rows {
+
+        private final DijkstraQueryContext context = new DijkstraQueryContext(reweighted,
+                DijkstraQueryContext.Engine.D_HEAP);
+        private final int[] queue; // the queue of the reachability searches, null if there is no negative cycle
+        private final int[] visited; // the stamp of the search that last visited each node
+        private int stamp;
+
+        Rows() {
+            queue = onNegativeCycle == null ? null : new int[n];
+            visited = onNegativeCycle == null ? null : new int[n];
+        }
+
+        void solve(int i, double[] row) {
+            if (onNegativeCycle != null && onNegativeCycle[i]) {
+                Arrays.fill(row, POSITIVE_INFINITY);
+            } else {
+                context.oneToAll(i, row, null);
+                for (int j = 0; j < n; j++) {
+                    if (row[j] != POSITIVE_INFINITY)
+                        row[j] += h[j] - h[i];
+                }
+            }
+
+            if (onNegativeCycle != null)
+                markNegativeCycles(i, row);
+        }
+
+        /**
+         * Set the row to NEGATIVE_INFINITY for every j reachable from a negative cycle node that i reaches, with a
+         * breadth first search from i for those nodes and one from them
+         */
+        private void markNegativeCycles(int i, double[] row) {
+            int head = 0, tail = 0;
+            visit(i);
+            queue[tail++] = i;
+            int cycleNodes = 0;
+            while (head < tail) {
+                int u = queue[head++];
+                if (onNegativeCycle[u])
+                    queue[cycleNodes++] = u; // behind head, the slot is free
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (visited[v] != stamp) {
+                        visited[v] = stamp;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if (cycleNodes == 0)
+                return;
+
+            visit(queue[0]);
+            for (int c = 1; c < cycleNodes; c++)
+                visited[queue[c]] = stamp;
+            head = 0;
+            tail = cycleNodes;
+            while (head < tail) {
+                int u = queue[head++];
+                row[u] = NEGATIVE_INFINITY;
+                for (int e = graph.begin(u); e < graph.end(u); e++) {
+                    int v = graph.target(e);
+                    if (visited[v] != stamp) {
+                        visited[v] = stamp;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+        }
+
+        // take a new stamp and visit the first node of a search
+        private void visit(int node) {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(visited, 0);
+                stamp = 1;
+            }
+            visited[node] = stamp;
+        }
+    }
+
+    public static void main(String[] args) {
+        int n = 7;
+        CsrGraph graph = CsrGraph.builder(n)
+                .addEdge(0, 1, 2)
+                .addEdge(0, 2, 5)
+                .addEdge(0, 6, 10)
+                .addEdge(1, 2, 2)
+                .addEdge(1, 4, 11)
+                .addEdge(2, 6, 2)
+                .addEdge(6, 5, 11)
+                .addEdge(4, 5, 1)
+                .addEdge(5, 4, -2)
+                .build();
+
+        JohnsonsAPSPSolver solver = new JohnsonsAPSPSolver(graph);
+        double[][] dist = solver.getAPSPMatrix();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                System.out.printf("The shortest path from node %d to node %d is %.3f, path: %s\n", i, j, dist[i][j],
+                        solver.reconstructShortestPath(i, j));
+            }
+        }
+    }
+}
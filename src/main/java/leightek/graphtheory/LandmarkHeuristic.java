@@ -0,0 +1,99 @@
+package leightek.graphtheory;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The ALT (A*, Landmarks, Triangle inequality) heuristic. The distances from and to a few landmark nodes are
+ * computed up front, then by the triangle inequality for every landmark L
+ * <pre>
+ *   dist(v, t) >= dist(L, t) - dist(L, v)
+ *   dist(v, t) >= dist(v, L) - dist(t, L)
+ * </pre>
+ * and the estimate is the largest of those bounds. Landmarks far out on the border of the graph give the tightest
+ * bounds, {@link #selectFarthest} picks them greedily.
+ */
+public class LandmarkHeuristic implements AStarHeuristic {
+
+    private final int[] landmarks;
+    private final double[][] fromLandmark; // fromLandmark[i][v] is the distance from landmark i to node v
+    private final double[][] toLandmark; // toLandmark[i][v] is the distance from node v to landmark i
+
+    /**
+     * Precompute the landmark distances, two full Dijkstra runs per landmark
+     * @param graph the graph, the weights can't be negative
+     * @param landmarks the indexes of the landmark nodes
+     */
+    public LandmarkHeuristic(StaticGraph graph, int[] landmarks) {
+        if (graph == null || landmarks == null || landmarks.length == 0)
+            throw new IllegalArgumentException();
+
+        DijkstraQueryContext forward = new DijkstraQueryContext(graph);
+        DijkstraQueryContext backward = new DijkstraQueryContext(CsrGraph.reverse(graph));
+        this.landmarks = landmarks.clone();
+        fromLandmark = new double[landmarks.length][];
+        toLandmark = new double[landmarks.length][];
+        for (int i = 0; i < landmarks.length; i++) {
+            fromLandmark[i] = forward.oneToAll(landmarks[i]);
+            toLandmark[i] = backward.oneToAll(landmarks[i]);
+        }
+    }
+
+    /**
+     * Pick landmarks greedily: start from a random node, then repeatedly add the node farthest from the landmarks
+     * chosen so far
+     * @param graph the graph, the weights can't be negative
+     * @param count the number of landmarks
+     * @param seed the random seed for the first landmark
+     * @return the heuristic on the chosen landmarks
+     */
+    public static LandmarkHeuristic selectFarthest(StaticGraph graph, int count, long seed) {
+        int n = graph.getNumberOfNodes();
+        if (count <= 0 || count > n)
+            throw new IllegalArgumentException("Invalid landmark count: " + count);
+
+        DijkstraQueryContext context = new DijkstraQueryContext(graph);
+        int[] landmarks = new int[count];
+        landmarks[0] = new Random(seed).nextInt(n);
+        double[] nearest = context.oneToAll(landmarks[0]); // distance to the closest chosen landmark
+        double[] dist = new double[n];
+
+        for (int i = 1; i < count; i++) {
+            int farthest = -1;
+            for (int v = 0; v < n; v++) {
+                if (nearest[v] != Double.POSITIVE_INFINITY && (farthest == -1 || nearest[v] > nearest[farthest]))
+                    farthest = v;
+            }
+            if (farthest == -1 || nearest[farthest] == 0) // everything reachable already is a landmark
+                return new LandmarkHeuristic(graph, Arrays.copyOf(landmarks, i));
+
+            landmarks[i] = farthest;
+            context.oneToAll(farthest, dist, null);
+            for (int v = 0; v < n; v++)
+                nearest[v] = Math.min(nearest[v], dist[v]);
+        }
+
+        return new LandmarkHeuristic(graph, landmarks);
+    }
+
+    public int[] getLandmarks() {
+        return landmarks.clone();
+    }
+
+    @Override
+    public double estimate(int node, int end) {
+        double bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            double[] from = fromLandmark[i], to = toLandmark[i];
+
+            // inf - inf is NaN, which never wins the comparison, so landmarks that can't see either node are skipped
+            double forward = from[end] - from[node];
+            if (forward > bound)
+                bound = forward;
+            double backward = to[node] - to[end];
+            if (backward > bound)
+                bound = backward;
+        }
+        return bound;
+    }
+}
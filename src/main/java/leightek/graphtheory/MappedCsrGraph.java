@@ -0,0 +1,216 @@
+package leightek.graphtheory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only CSR graph backed by a memory-mapped file. Opening a graph only maps the file, the pages are read in
+ * lazily by the OS as the solvers touch them, so there is no parse cost and the graph may be larger than the heap.
+ *
+ * The file layout is little endian:
+ * <pre>
+ *   header   int magic "GCSR", int version, int n, int flags (bit 0: weighted), long m, long reserved
+ *   offsets  int[n + 1]
+ *   targets  int[m]
+ *   padding  to a multiple of 8 bytes
+ *   weights  double[m], only if weighted
+ * </pre>
+ * A single mapping is limited to 2 GB, so every section is mapped in chunks of 2^27 elements.
+ */
+public final class MappedCsrGraph implements StaticGraph {
+
+    private static final int MAGIC = 0x52534347; // "GCSR" read as a little endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int WEIGHTED = 1;
+
+    private static final int CHUNK_SHIFT = 27; // 2^27 elements per mapped chunk, 512 MB of ints or 1 GB of doubles
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final int n, m;
+    private final IntBuffer[] offsets;
+    private final IntBuffer[] targets;
+    private final DoubleBuffer[] weights; // null if the graph is unweighted
+    private volatile long maxIntegerWeight = -2; // -2 until the weights are scanned
+
+    private MappedCsrGraph(int n, int m, IntBuffer[] offsets, IntBuffer[] targets, DoubleBuffer[] weights) {
+        this.n = n;
+        this.m = m;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return m;
+    }
+
+    @Override
+    public int begin(int u) {
+        return offsets[u >>> CHUNK_SHIFT].get(u & CHUNK_MASK);
+    }
+
+    @Override
+    public int end(int u) {
+        return begin(u + 1);
+    }
+
+    @Override
+    public int target(int e) {
+        return targets[e >>> CHUNK_SHIFT].get(e & CHUNK_MASK);
+    }
+
+    @Override
+    public double weight(int e) {
+        return weights == null ? 1 : weights[e >>> CHUNK_SHIFT].get(e & CHUNK_MASK);
+    }
+
+    @Override
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    @Override
+    public long maxIntegerWeight() {
+        long max = maxIntegerWeight;
+        if (max == -2)
+            maxIntegerWeight = max = DijkstraQueryContext.maxIntegerWeight(this);
+        return max;
+    }
+
+    /**
+     * Write a graph to a file in the mapped graph format, replacing the file if it exists
+     * @param graph the graph to write
+     * @param file the path of the file
+     * @throws IOException if the file can't be written
+     */
+    public static void write(StaticGraph graph, Path file) throws IOException {
+        int n = graph.getNumberOfNodes(), m = graph.getNumberOfEdges();
+        boolean weighted = graph.isWeighted();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(weighted ? WEIGHTED : 0).putLong(m).putLong(0);
+
+            for (int u = 0; u <= n; u++) {
+                flushIfFull(channel, buffer, Integer.BYTES);
+                buffer.putInt(u < n ? graph.begin(u) : m);
+            }
+            for (int e = 0; e < m; e++) {
+                flushIfFull(channel, buffer, Integer.BYTES);
+                buffer.putInt(graph.target(e));
+            }
+
+            if (weighted) {
+                long position = channel.position() + buffer.position();
+                for (long pad = weightsPosition(n, m) - position; pad > 0; pad--) {
+                    flushIfFull(channel, buffer, 1);
+                    buffer.put((byte) 0);
+                }
+                for (int e = 0; e < m; e++) {
+                    flushIfFull(channel, buffer, Double.BYTES);
+                    buffer.putDouble(graph.weight(e));
+                }
+            }
+
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Map a graph file written by {@link #write}
+     * @param file the path of the file
+     * @return the mapped graph, valid after the file channel is closed
+     * @throws IOException if the file can't be read or is not a graph file
+     */
+    public static MappedCsrGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) == -1)
+                    break;
+            }
+            header.flip();
+
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+                throw new IOException("Not a graph file: " + file);
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported graph file version: " + version);
+            int n = header.getInt();
+            boolean weighted = (header.getInt() & WEIGHTED) != 0;
+            long m = header.getLong();
+            if (n < 0 || m < 0 || m > Integer.MAX_VALUE)
+                throw new IOException("Corrupt graph file header: " + file);
+
+            long targetsPosition = HEADER_BYTES + 4L * (n + 1);
+            long expectedSize = weighted ? weightsPosition(n, m) + 8L * m : targetsPosition + 4L * m;
+            if (channel.size() < expectedSize)
+                throw new IOException("Truncated graph file: " + file);
+
+            IntBuffer[] offsets = mapInts(channel, HEADER_BYTES, n + 1L);
+            IntBuffer[] targets = mapInts(channel, targetsPosition, m);
+            DoubleBuffer[] weights = weighted ? mapDoubles(channel, weightsPosition(n, m), m) : null;
+            return new MappedCsrGraph(n, (int) m, offsets, targets, weights);
+        }
+    }
+
+    // the weights section starts at the first multiple of 8 bytes after the targets
+    private static long weightsPosition(int n, long m) {
+        long end = HEADER_BYTES + 4L * (n + 1) + 4L * m;
+        return (end + 7) & ~7L;
+    }
+
+    private static IntBuffer[] mapInts(FileChannel channel, long position, long count) throws IOException {
+        IntBuffer[] chunks = new IntBuffer[chunkCount(count)];
+        for (int i = 0; i < chunks.length; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long size = Math.min(count - first, 1L << CHUNK_SHIFT);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 4 * first, 4 * size)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        return chunks;
+    }
+
+    private static DoubleBuffer[] mapDoubles(FileChannel channel, long position, long count) throws IOException {
+        DoubleBuffer[] chunks = new DoubleBuffer[chunkCount(count)];
+        for (int i = 0; i < chunks.length; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long size = Math.min(count - first, 1L << CHUNK_SHIFT);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + 8 * first, 8 * size)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+        return chunks;
+    }
+
+    private static int chunkCount(long count) {
+        return (int) Math.max(1, (count + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    // write out the buffer if it has less than 'bytes' bytes left
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush(channel, buffer);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,278 @@
+package leightek.graphtheory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An n x n distance matrix backed by a memory-mapped file, for APSP results larger than the heap: n = 50,000 is 20 GB
+ * of doubles or 10 GB of floats. The OS pages the rows in and out as they are touched, so a service can open the file
+ * and answer distance queries without loading the matrix, and a solver can write it a row or a tile at a time.
+ *
+ * The file layout is little endian:
+ * <pre>
+ *   header   int magic "GDST", int version, int n, int bytes per distance (4 or 8), long reserved, long reserved
+ *   rows     float[n * n] or double[n * n], row major, the distance from i to j at i * n + j
+ * </pre>
+ * A single mapping is limited to 2 GB, so the matrix is mapped in chunks of 2^27 distances, the same as
+ * {@link MappedCsrGraph}. Any number of threads may read, and write distinct distances, at the same time.
+ */
+public final class MappedDistanceMatrix {
+
+    /**
+     * The type the distances are stored as
+     */
+    public enum Precision {
+        FLOAT, // 4 bytes, exact for integer distances up to 2^24, infinities are kept
+        DOUBLE // 8 bytes, the values the solvers compute
+    }
+
+    private static final int MAGIC = 0x54534447; // "GDST" read as a little endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private static final int CHUNK_SHIFT = 27; // 2^27 distances per mapped chunk, 512 MB of floats or 1 GB of doubles
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final int n;
+    private final Precision precision;
+    private final boolean readOnly;
+    private final MappedByteBuffer[] mapped; // the chunks as mapped, kept to force them to disk
+    private final FloatBuffer[] floats; // the chunks if the precision is FLOAT, or else null
+    private final DoubleBuffer[] doubles; // the chunks if the precision is DOUBLE, or else null
+
+    private MappedDistanceMatrix(int n, Precision precision, boolean readOnly, MappedByteBuffer[] mapped) {
+        this.n = n;
+        this.precision = precision;
+        this.readOnly = readOnly;
+        this.mapped = mapped;
+        if (precision == Precision.FLOAT) {
+            floats = new FloatBuffer[mapped.length];
+            doubles = null;
+            for (int c = 0; c < mapped.length; c++)
+                floats[c] = mapped[c].order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        } else {
+            floats = null;
+            doubles = new DoubleBuffer[mapped.length];
+            for (int c = 0; c < mapped.length; c++)
+                doubles[c] = mapped[c].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Create a matrix file for n nodes, replacing the file if it exists. The distances start out as 0.
+     * @param file        the path of the file
+     * @param n           the number of nodes
+     * @param precision   the type the distances are stored as
+     * @return the matrix, mapped for reading and writing
+     * @throws IOException if the file can't be written
+     */
+    public static MappedDistanceMatrix create(Path file, int n, Precision precision) throws IOException {
+        if (n < 0)
+            throw new IllegalArgumentException("n < 0");
+        if (precision == null)
+            throw new IllegalArgumentException("Precision cannot be null!");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(bytes(precision)).putLong(0).putLong(0);
+            header.flip();
+            while (header.hasRemaining())
+                channel.write(header);
+
+            return new MappedDistanceMatrix(n, precision, false, map(channel, FileChannel.MapMode.READ_WRITE, n,
+                    precision));
+        }
+    }
+
+    /**
+     * Map a matrix file written by {@link #create} for reading
+     * @param file the path of the file
+     * @return the read-only matrix, valid after the file channel is closed
+     * @throws IOException if the file can't be read or is not a matrix file
+     */
+    public static MappedDistanceMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header) == -1)
+                    break;
+            }
+            header.flip();
+
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC)
+                throw new IOException("Not a distance matrix file: " + file);
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported distance matrix file version: " + version);
+            int n = header.getInt();
+            int bytes = header.getInt();
+            if (n < 0 || (bytes != Float.BYTES && bytes != Double.BYTES))
+                throw new IOException("Corrupt distance matrix file header: " + file);
+            Precision precision = bytes == Float.BYTES ? Precision.FLOAT : Precision.DOUBLE;
+            if (channel.size() < HEADER_BYTES + (long) n * n * bytes)
+                throw new IOException("Truncated distance matrix file: " + file);
+
+            return new MappedDistanceMatrix(n, precision, true, map(channel, FileChannel.MapMode.READ_ONLY, n,
+                    precision));
+        }
+    }
+
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Get the distance from start node to end node
+     * @param start start node
+     * @param end end node
+     * @return the distance, POSITIVE_INFINITY if there is no path and NEGATIVE_INFINITY if a negative cycle is on the
+     * way, as the solver wrote it
+     */
+    public double distance(int start, int end) {
+        nodesInBoundsOrThrow(start, end);
+        long index = (long) start * n + end;
+        int c = (int) (index >>> CHUNK_SHIFT), i = (int) index & CHUNK_MASK;
+        return floats != null ? floats[c].get(i) : doubles[c].get(i);
+    }
+
+    public void setDistance(int start, int end, double distance) {
+        nodesInBoundsOrThrow(start, end);
+        writableOrThrow();
+        long index = (long) start * n + end;
+        int c = (int) (index >>> CHUNK_SHIFT), i = (int) index & CHUNK_MASK;
+        if (floats != null)
+            floats[c].put(i, (float) distance);
+        else
+            doubles[c].put(i, distance);
+    }
+
+    /**
+     * Read the distances from a node to every node
+     * @param start   start node
+     * @param row     filled with the distance to every node, or null
+     * @return the row
+     */
+    public double[] readRow(int start, double[] row) {
+        if (row == null)
+            row = new double[n];
+        if (row.length != n)
+            throw new IllegalArgumentException("The row must have a slot for every node");
+        nodesInBoundsOrThrow(start, 0);
+        read(start, 0, row, 0, n);
+        return row;
+    }
+
+    /**
+     * Write the distances from a node to every node
+     * @param start   start node
+     * @param row     the distance to every node
+     */
+    public void writeRow(int start, double[] row) {
+        if (row == null || row.length != n)
+            throw new IllegalArgumentException("The row must have a slot for every node");
+        nodesInBoundsOrThrow(start, 0);
+        writableOrThrow();
+        write(start, 0, row, 0, n);
+    }
+
+    /**
+     * Write the changes made to the matrix out to the file
+     */
+    public void force() {
+        if (!readOnly) {
+            for (MappedByteBuffer chunk : mapped)
+                chunk.force();
+        }
+    }
+
+    // Helper functions
+
+    /**
+     * Read the distances from start to the nodes [end, end + length) into dst from offset, across chunks if needed
+     */
+    void read(int start, int end, double[] dst, int offset, int length) {
+        long index = (long) start * n + end;
+        while (length > 0) {
+            int c = (int) (index >>> CHUNK_SHIFT), i = (int) index & CHUNK_MASK;
+            int count = Math.min(length, (1 << CHUNK_SHIFT) - i);
+            if (floats != null) {
+                FloatBuffer chunk = floats[c];
+                for (int k = 0; k < count; k++)
+                    dst[offset + k] = chunk.get(i + k);
+            } else {
+                DoubleBuffer view = doubles[c].duplicate(); // a view of its own, so threads don't share a position
+                view.position(i);
+                view.get(dst, offset, count);
+            }
+            index += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Write the distances from start to the nodes [end, end + length) from src at offset, across chunks if needed
+     */
+    void write(int start, int end, double[] src, int offset, int length) {
+        long index = (long) start * n + end;
+        while (length > 0) {
+            int c = (int) (index >>> CHUNK_SHIFT), i = (int) index & CHUNK_MASK;
+            int count = Math.min(length, (1 << CHUNK_SHIFT) - i);
+            if (floats != null) {
+                FloatBuffer chunk = floats[c];
+                for (int k = 0; k < count; k++)
+                    chunk.put(i + k, (float) src[offset + k]);
+            } else {
+                DoubleBuffer view = doubles[c].duplicate();
+                view.position(i);
+                view.put(src, offset, count);
+            }
+            index += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, int n, Precision precision)
+            throws IOException {
+        long count = (long) n * n;
+        int bytes = bytes(precision);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) Math.max(1, (count + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int c = 0; c < chunks.length; c++) {
+            long first = (long) c << CHUNK_SHIFT;
+            long size = Math.min(count - first, 1L << CHUNK_SHIFT);
+            chunks[c] = channel.map(mode, HEADER_BYTES + bytes * first, bytes * size);
+        }
+        return chunks;
+    }
+
+    private static int bytes(Precision precision) {
+        return precision == Precision.FLOAT ? Float.BYTES : Double.BYTES;
+    }
+
+    private void nodesInBoundsOrThrow(int start, int end) {
+        if (start < 0 || start >= n || end < 0 || end >= n)
+            throw new IllegalArgumentException("Invalid node index");
+    }
+
+    private void writableOrThrow() {
+        if (readOnly)
+            throw new IllegalStateException("The distance matrix is read-only");
+    }
+}
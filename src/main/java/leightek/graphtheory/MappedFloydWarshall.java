@@ -0,0 +1,301 @@
+package leightek.graphtheory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * Floyd Warshall algorithm out of core: the matrix lives in a {@link MappedDistanceMatrix} file and is solved in place
+ * a band of rows at a time, so the heap only holds a few bands whatever the size of the matrix. The result is the same
+ * as {@link BlockedFloydWarshall}, negative cycles included, but only the distances are kept, not the next hops.
+ *
+ * The intermediate nodes k are taken tileSize at a time, as in BlockedFloydWarshall. A round reads the rows of its k
+ * nodes, the k strip, and solves them through the k nodes: first the tile on the diagonal, then the rest of the strip.
+ * Then every other band of tileSize rows is read, relaxed through the k nodes, its k columns first, and written back,
+ * the bands in parallel on a fork-join pool. Each round so streams the file through the heap once, and the relaxation
+ * works on one column tile at a time to stay in the cache. With a DOUBLE file the distances are exactly the ones the
+ * in-memory solvers compute, a FLOAT file rounds them at the end of every round.
+ *
+ * The heap needed is about (workers + 1) * tileSize * n doubles, 100MB a band for n = 50,000 and the default tile.
+ */
+public class MappedFloydWarshall {
+
+    public static final int DEFAULT_TILE_SIZE = 256; // fewer rounds, each streaming the whole file, than a smaller tile
+
+    private final int n; // the number of nodes
+    private final int tileSize;
+    private final int tiles; // the number of tiles along a side of the matrix
+    private final ForkJoinPool pool;
+    private final MappedDistanceMatrix matrix;
+    private final ConcurrentLinkedQueue<double[]> bands = new ConcurrentLinkedQueue<>(); // idle band buffers
+    private boolean solved;
+
+    public MappedFloydWarshall(MappedDistanceMatrix matrix) {
+        this(matrix, DEFAULT_TILE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a solver on a matrix file holding an adjacency matrix, which is solved in place
+     * @param matrix     the edge weight from i to j, POSITIVE_INFINITY if there is no edge, see writeAdjacencyMatrix
+     * @param tileSize   the number of k nodes of a round and the number of rows of a band
+     * @param pool       the pool the bands are relaxed on
+     */
+    public MappedFloydWarshall(MappedDistanceMatrix matrix, int tileSize, ForkJoinPool pool) {
+        if (matrix == null)
+            throw new IllegalArgumentException("Matrix cannot be null!");
+        if (matrix.isReadOnly())
+            throw new IllegalArgumentException("The matrix must be writable");
+        if (tileSize <= 0)
+            throw new IllegalArgumentException("tileSize <= 0");
+        if (pool == null)
+            throw new IllegalArgumentException("Pool cannot be null!");
+
+        this.n = matrix.getNumberOfNodes();
+        this.tileSize = tileSize;
+        this.tiles = (n + tileSize - 1) / tileSize;
+        this.pool = pool;
+        this.matrix = matrix;
+    }
+
+    /**
+     * Solve the APSP of a graph into a new matrix file
+     * @param graph       the graph
+     * @param file        the path of the file, replaced if it exists
+     * @param precision   the type the distances are stored as
+     * @return the solved matrix file, mapped for reading and writing
+     * @throws IOException if the file can't be written
+     */
+    public static MappedDistanceMatrix solve(StaticGraph graph, Path file, MappedDistanceMatrix.Precision precision)
+            throws IOException {
+        MappedDistanceMatrix matrix = MappedDistanceMatrix.create(file, graph.getNumberOfNodes(), precision);
+        writeAdjacencyMatrix(graph, matrix);
+        return new MappedFloydWarshall(matrix).solve();
+    }
+
+    /**
+     * Write the adjacency matrix of a graph, as {@link FloydWarshallSolver#createGraph} lays it out: 0 on the diagonal,
+     * the lightest edge from i to j, and POSITIVE_INFINITY if there is none
+     * @param graph    the graph
+     * @param matrix   the matrix to write, of the same number of nodes
+     */
+    public static void writeAdjacencyMatrix(StaticGraph graph, MappedDistanceMatrix matrix) {
+        int n = graph.getNumberOfNodes();
+        if (matrix.getNumberOfNodes() != n)
+            throw new IllegalArgumentException("The matrix must have the nodes of the graph");
+
+        double[] row = new double[n];
+        for (int u = 0; u < n; u++) {
+            Arrays.fill(row, POSITIVE_INFINITY);
+            row[u] = 0;
+            for (int e = graph.begin(u); e < graph.end(u); e++)
+                row[graph.target(e)] = Math.min(row[graph.target(e)], graph.weight(e));
+            matrix.writeRow(u, row);
+        }
+    }
+
+    public int getNumberOfNodes() {
+        return n;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Run the out of core Floyd Warshall algorithm to compute APSP and detect negative cycles
+     * @return the matrix file, the distance from i to j is NEGATIVE_INFINITY if a negative cycle is on the way
+     */
+    public MappedDistanceMatrix solve() {
+        if (solved)
+            return matrix;
+
+        double[] strip = new double[Math.min(tileSize, n) * n];
+        for (int kt = 0; kt < tiles; kt++) {
+            int kFrom = kt * tileSize, kCount = Math.min(n, kFrom + tileSize) - kFrom;
+            readRows(kFrom, kCount, strip);
+            relax(strip, kCount, strip, kFrom, kCount, kFrom, kFrom + kCount); // the tile on the diagonal
+            for (int jt = 0; jt < tiles; jt++) {
+                if (jt != kt)
+                    relax(strip, kCount, strip, kFrom, kCount, jt * tileSize, Math.min(n, (jt + 1) * tileSize));
+            }
+            writeRows(kFrom, kCount, strip);
+
+            if (tiles > 1)
+                pool.invoke(new Bands(kt, strip, kCount, 0, tiles - 1));
+        }
+        propagateNegativeCycles();
+        matrix.force();
+
+        solved = true;
+        return matrix;
+    }
+
+    // Helper functions
+
+    /**
+     * Relax the rows of a band, for the columns [jFrom, jTo), through the k nodes [kFrom, kFrom + kCount) whose rows
+     * are in the strip. The kernel of every phase: a band is rows x n and a strip kCount x n, both row major.
+     */
+    private void relax(double[] band, int rows, double[] strip, int kFrom, int kCount, int jFrom, int jTo) {
+        for (int k = 0; k < kCount; k++) {
+            int rowK = k * n;
+            for (int i = 0; i < rows; i++) {
+                int rowI = i * n;
+                double dik = band[rowI + kFrom + k];
+                if (dik != POSITIVE_INFINITY)
+                    MinPlus.KERNEL.relax(band, rowI + jFrom, dik, strip, rowK + jFrom, jTo - jFrom);
+            }
+        }
+    }
+
+    private void readRows(int from, int count, double[] rows) {
+        for (int i = 0; i < count; i++)
+            matrix.read(from + i, 0, rows, i * n, n);
+    }
+
+    private void writeRows(int from, int count, double[] rows) {
+        for (int i = 0; i < count; i++)
+            matrix.write(from + i, 0, rows, i * n, n);
+    }
+
+    /**
+     * Set every pair with a negative cycle on some path between them to NEGATIVE_INFINITY. The nodes k on a negative
+     * cycle keep the set of nodes they reach as a bitset, and every row takes the union of the sets of the k it
+     * reaches.
+     */
+    private void propagateNegativeCycles() {
+        int count = 0;
+        for (int k = 0; k < n; k++) {
+            if (matrix.distance(k, k) < 0)
+                count++;
+        }
+        if (count == 0)
+            return;
+
+        int[] cycleNodes = new int[count];
+        long[][] reaches = new long[count][];
+        double[] row = new double[n];
+        for (int k = 0, c = 0; k < n; k++) {
+            if (matrix.distance(k, k) < 0) {
+                cycleNodes[c] = k;
+                matrix.readRow(k, row);
+                reaches[c] = new long[(n + 63) >>> 6];
+                for (int j = 0; j < n; j++) {
+                    if (row[j] != POSITIVE_INFINITY)
+                        reaches[c][j >>> 6] |= 1L << j;
+                }
+                c++;
+            }
+        }
+        pool.invoke(new NegativeCycleTask(cycleNodes, reaches, 0, tiles));
+    }
+
+    private double[] borrowBand() {
+        double[] band = bands.poll();
+        return band != null ? band : new double[Math.min(tileSize, n) * n];
+    }
+
+    /**
+     * The bands of round kt but the k strip, indexed [from, to) skipping kt, split in halves down to one per task
+     */
+    private final class Bands extends RecursiveAction {
+
+        private final int kt, kCount;
+        private final double[] strip;
+        private final int from, to;
+
+        Bands(int kt, double[] strip, int kCount, int from, int to) {
+            this.kt = kt;
+            this.strip = strip;
+            this.kCount = kCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Bands(kt, strip, kCount, from, mid), new Bands(kt, strip, kCount, mid, to));
+                return;
+            }
+
+            int it = from < kt ? from : from + 1;
+            int iFrom = it * tileSize, rows = Math.min(n, iFrom + tileSize) - iFrom;
+            int kFrom = kt * tileSize;
+            double[] band = borrowBand();
+            try {
+                readRows(iFrom, rows, band);
+                relax(band, rows, strip, kFrom, kCount, kFrom, kFrom + kCount); // the k columns first
+                for (int jt = 0; jt < tiles; jt++) {
+                    if (jt != kt)
+                        relax(band, rows, strip, kFrom, kCount, jt * tileSize, Math.min(n, (jt + 1) * tileSize));
+                }
+                writeRows(iFrom, rows, band);
+            } finally {
+                bands.offer(band);
+            }
+        }
+    }
+
+    /**
+     * Mark the bands [from, to): i to j is NEGATIVE_INFINITY if i reaches a node k on a negative cycle that reaches j
+     */
+    private final class NegativeCycleTask extends RecursiveAction {
+
+        private final int[] cycleNodes;
+        private final long[][] reaches; // the nodes each of the cycle nodes reaches
+        private final int from, to;
+
+        NegativeCycleTask(int[] cycleNodes, long[][] reaches, int from, int to) {
+            this.cycleNodes = cycleNodes;
+            this.reaches = reaches;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new NegativeCycleTask(cycleNodes, reaches, from, mid),
+                        new NegativeCycleTask(cycleNodes, reaches, mid, to));
+                return;
+            }
+
+            int iFrom = from * tileSize, rows = Math.min(n, iFrom + tileSize) - iFrom;
+            double[] band = borrowBand();
+            long[] marked = new long[(n + 63) >>> 6];
+            try {
+                readRows(iFrom, rows, band);
+                for (int i = 0; i < rows; i++) {
+                    int rowI = i * n;
+                    boolean any = false;
+                    Arrays.fill(marked, 0);
+                    for (int c = 0; c < cycleNodes.length; c++) {
+                        if (band[rowI + cycleNodes[c]] != POSITIVE_INFINITY) {
+                            any = true;
+                            for (int w = 0; w < marked.length; w++)
+                                marked[w] |= reaches[c][w];
+                        }
+                    }
+                    if (!any)
+                        continue;
+                    for (int j = 0; j < n; j++) {
+                        if ((marked[j >>> 6] & 1L << j) != 0)
+                            band[rowI + j] = NEGATIVE_INFINITY;
+                    }
+                }
+                writeRows(iFrom, rows, band);
+            } finally {
+                bands.offer(band);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package leightek.graphtheory;
+
+import java.util.Arrays;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * Min-plus (tropical) matrix products over flat row major n x n matrices, c[i][j] = min over k of a[i][k] + b[k][j],
+ * and all pairs shortest paths by repeated squaring of the adjacency matrix. The inner loop is a {@link MinPlusKernel},
+ * shared with {@link FloydWarshallSolver}, {@link BlockedFloydWarshall} and {@link MappedFloydWarshall}.
+ *
+ * The kernel runs on the JDK Vector API when the library jar was built on JDK 17+ (the jdk17 profile, a multi-release
+ * jar) and the JVM runs with --add-modules jdk.incubator.vector, or else on plain loops. Setting {@link #PROPERTY} to
+ * scalar forces the loops.
+ */
+public final class MinPlus {
+
+    public static final String PROPERTY = "leightek.minplus.kernel"; // set to "scalar" to never use the Vector API
+
+    static final MinPlusKernel KERNEL = loadKernel();
+
+    private static final int TILE_SIZE = 128; // the columns of b kept in the cache while a block of k is multiplied
+
+    private MinPlus() {
+    }
+
+    /**
+     * Test if the kernel in use runs on the Vector API
+     * @return true if vectorized, or else false
+     */
+    public static boolean isVectorized() {
+        return !(KERNEL instanceof ScalarMinPlusKernel);
+    }
+
+    /**
+     * Multiply two matrices in the min-plus semiring
+     * @param a   the left matrix, a[i][k] at i * n + k
+     * @param b   the right matrix, b[k][j] at k * n + j
+     * @param n   the number of rows and columns
+     * @return the product, POSITIVE_INFINITY where no k joins i and j
+     */
+    public static double[] multiply(double[] a, double[] b, int n) {
+        double[] c = new double[n * n];
+        Arrays.fill(c, POSITIVE_INFINITY);
+        multiply(a, b, c, n);
+        return c;
+    }
+
+    /**
+     * Multiply two matrices in the min-plus semiring into a third one, keeping the smaller of its values and the
+     * product: c = min(c, a * b). c must not be a or b.
+     * @param a   the left matrix, a[i][k] at i * n + k
+     * @param b   the right matrix, b[k][j] at k * n + j
+     * @param c   the matrix the product is taken into
+     * @param n   the number of rows and columns
+     */
+    public static void multiply(double[] a, double[] b, double[] c, int n) {
+        matricesOrThrow(n, a, b, c);
+        for (int jFrom = 0; jFrom < n; jFrom += TILE_SIZE) {
+            int length = Math.min(n, jFrom + TILE_SIZE) - jFrom;
+            for (int i = 0; i < n; i++) {
+                int rowI = i * n;
+                for (int k = 0; k < n; k++) {
+                    double aik = a[rowI + k];
+                    if (aik != POSITIVE_INFINITY)
+                        KERNEL.relax(c, rowI + jFrom, aik, b, k * n + jFrom, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compute APSP by squaring the adjacency matrix until the walks of n edges are covered, O(n^3 log n) and so
+     * slower than Floyd Warshall algorithm asymptotically, but every step is a product that vectorizes and splits into
+     * independent rows. The result is the same as {@link FloydWarshallSolver#getAPSPMatrix}, NEGATIVE_INFINITY
+     * included.
+     * @param matrix  the adjacency matrix laid out as {@link FloydWarshallSolver#createGraph} does, flat row major
+     * @param n       the number of nodes
+     * @return the APSP matrix, flat row major
+     */
+    public static double[] shortestPaths(double[] matrix, int n) {
+        matricesOrThrow(n, matrix);
+        double[] dist = matrix.clone();
+        for (int i = 0; i < n; i++)
+            dist[i * n + i] = Math.min(0, dist[i * n + i]); // so that a square keeps the shorter paths as well
+
+        double[] square = new double[n * n];
+        // walks of up to n edges, so that a negative cycle through all n nodes shows on the diagonal as well
+        for (long edges = 1; edges < n; edges *= 2) {
+            System.arraycopy(dist, 0, square, 0, dist.length);
+            multiply(dist, dist, square, n);
+            if (Arrays.equals(square, dist))
+                break;
+            double[] tmp = dist;
+            dist = square;
+            square = tmp;
+        }
+
+        // a node with a negative distance to itself is on a negative cycle, the same marking as Floyd Warshall
+        for (int k = 0; k < n; k++) {
+            if (dist[k * n + k] >= 0)
+                continue;
+            for (int i = 0; i < n; i++) {
+                if (dist[i * n + k] == POSITIVE_INFINITY)
+                    continue;
+                for (int j = 0; j < n; j++) {
+                    if (dist[k * n + j] != POSITIVE_INFINITY)
+                        dist[i * n + j] = NEGATIVE_INFINITY;
+                }
+            }
+        }
+        return dist;
+    }
+
+    // Helper functions
+
+    /**
+     * Load the Vector API kernel by name, so this class still loads where it was not built or its module is missing
+     */
+    private static MinPlusKernel loadKernel() {
+        if (!"scalar".equals(System.getProperty(PROPERTY))) {
+            try {
+                return (MinPlusKernel) Class.forName("leightek.graphtheory.VectorMinPlusKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // not built, an older JDK, or the incubator module not added
+            }
+        }
+        return new ScalarMinPlusKernel();
+    }
+
+    private static void matricesOrThrow(int n, double[]... matrices) {
+        if (n < 0)
+            throw new IllegalArgumentException("n < 0");
+        for (double[] matrix : matrices) {
+            if (matrix == null || matrix.length != (long) n * n)
+                throw new IllegalArgumentException("The matrix must hold n * n values");
+        }
+    }
+
+    // Test functions
+
+    /**
+     * Test if the APSP of a single negative cycle through all n nodes matches Floyd Warshall algorithm
+     * @param n   the number of nodes on the cycle
+     * @return true if every distance matches, or else false
+     */
+    public static boolean negativeCycleMatchesFloydWarshall(int n) {
+        double[][] m = FloydWarshallSolver.createGraph(n);
+        double[] flat = new double[n * n];
+        for (int i = 0; i < n; i++)
+            m[i][(i + 1) % n] = i == 0 ? -n : 1; // a cycle of weight -1
+        for (int i = 0; i < n; i++)
+            System.arraycopy(m[i], 0, flat, i * n, n);
+
+        double[][] expected = new FloydWarshallSolver(m).getAPSPMatrix();
+        double[] dist = shortestPaths(flat, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (Double.compare(dist[i * n + j], expected[i][j]) != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        for (int n : new int[] {2, 3, 5}) {
+            System.out.printf("A negative cycle through %d nodes matches Floyd Warshall: %b\n", n,
+                    negativeCycleMatchesFloydWarshall(n));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package leightek.graphtheory;
+
+/**
+ * The inner loop of Floyd Warshall algorithm and of min-plus matrix products: row[j] = min(row[j], dik + rowK[j]) over
+ * a range of j, optionally writing a next hop wherever the row improves. {@link MinPlus#KERNEL} is the implementation
+ * in use, on the JDK Vector API when it is available or else {@link ScalarMinPlusKernel}.
+ *
+ * A candidate that is not smaller, NaN included, leaves the row alone, just as the scalar comparison does.
+ */
+interface MinPlusKernel {
+
+    /**
+     * Relax row[rowFrom, rowFrom + length) with dik + rowK[kFrom, kFrom + length)
+     */
+    void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length);
+
+    /**
+     * Relax the row as above and set next[nextFrom + j] to hop for every j improved, or to negativeCycleHop if it
+     * improved to NEGATIVE_INFINITY
+     */
+    void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length,
+               int[] next, int nextFrom, int hop, int negativeCycleHop);
+
+    /**
+     * The same with the next hops in a short[]
+     */
+    void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length,
+               short[] next, int nextFrom, int hop, int negativeCycleHop);
+}
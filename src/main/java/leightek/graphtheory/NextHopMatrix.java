@@ -0,0 +1,125 @@
+package leightek.graphtheory;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The next hops of all pairs shortest paths, the node after i on the path from i to j, in one flat primitive array:
+ * a short[] while the node ids fit in a short and an int[] above, 2 or 4 bytes a pair against the 16 or more of a
+ * boxed Integer, with nothing for the garbage collector to trace. For n = 20,000 the short[] takes 800MB.
+ */
+abstract class NextHopMatrix {
+
+    static final int NO_PATH = -1;
+    static final int REACHES_NEGATIVE_CYCLE = -2;
+
+    protected final int n;
+
+    NextHopMatrix(int n) {
+        if ((long) n * n > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many nodes for a next hop matrix; received: " + n);
+        this.n = n;
+    }
+
+    /**
+     * Create a matrix with no path between any pair
+     * @param n   the number of nodes
+     * @return a short[] backed matrix if n < Short.MAX_VALUE, or else an int[] backed one
+     */
+    static NextHopMatrix create(int n) {
+        return n < Short.MAX_VALUE ? new ShortMatrix(n) : new IntMatrix(n);
+    }
+
+    abstract int get(int i, int j);
+
+    abstract void set(int i, int j, int next);
+
+    /**
+     * Relax row i of the distances through node k with the min-plus kernel, an improved pair i, j takes the next hop of
+     * i, k, or REACHES_NEGATIVE_CYCLE if it improved to NEGATIVE_INFINITY
+     * @param i      the row
+     * @param k      the intermediate node
+     * @param row    the distances from i
+     * @param dik    the distance from i to k
+     * @param rowK   the distances from k
+     */
+    abstract void relaxRow(int i, int k, double[] row, double dik, double[] rowK);
+
+    /**
+     * Iterate the nodes on the path from start to end, reading one next hop per node as it goes
+     * @param start start node
+     * @param end   end node, there must be a path to it
+     * @return the nodes from start to end, both included
+     */
+    PrimitiveIterator.OfInt path(int start, int end) {
+        return new PrimitiveIterator.OfInt() {
+            private int at = start; // the node returned next, -1 once end is returned
+
+            @Override
+            public boolean hasNext() {
+                return at >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (at < 0)
+                    throw new NoSuchElementException();
+                int node = at;
+                at = node == end ? -1 : get(node, end);
+                return node;
+            }
+        };
+    }
+
+    private static final class ShortMatrix extends NextHopMatrix {
+
+        private final short[] next;
+
+        ShortMatrix(int n) {
+            super(n);
+            next = new short[n * n];
+            java.util.Arrays.fill(next, (short) NO_PATH);
+        }
+
+        @Override
+        int get(int i, int j) {
+            return next[i * n + j];
+        }
+
+        @Override
+        void set(int i, int j, int next) {
+            this.next[i * n + j] = (short) next;
+        }
+
+        @Override
+        void relaxRow(int i, int k, double[] row, double dik, double[] rowK) {
+            MinPlus.KERNEL.relax(row, 0, dik, rowK, 0, n, next, i * n, get(i, k), REACHES_NEGATIVE_CYCLE);
+        }
+    }
+
+    private static final class IntMatrix extends NextHopMatrix {
+
+        private final int[] next;
+
+        IntMatrix(int n) {
+            super(n);
+            next = new int[n * n];
+            java.util.Arrays.fill(next, NO_PATH);
+        }
+
+        @Override
+        int get(int i, int j) {
+            return next[i * n + j];
+        }
+
+        @Override
+        void set(int i, int j, int next) {
+            this.next[i * n + j] = next;
+        }
+
+        @Override
+        void relaxRow(int i, int k, double[] row, double dik, double[] rowK) {
+            MinPlus.KERNEL.relax(row, 0, dik, rowK, 0, n, next, i * n, get(i, k), REACHES_NEGATIVE_CYCLE);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package leightek.graphtheory;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+
+/**
+ * The min-plus kernel as plain loops, for JDKs without the Vector API. The JIT may still vectorize the loop without
+ * next hops, but not the ones writing them in a branch.
+ */
+final class ScalarMinPlusKernel implements MinPlusKernel {
+
+    @Override
+    public void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length) {
+        for (int j = 0; j < length; j++) {
+            double d = dik + rowK[kFrom + j];
+            if (d < row[rowFrom + j])
+                row[rowFrom + j] = d;
+        }
+    }
+
+    @Override
+    public void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length,
+                      int[] next, int nextFrom, int hop, int negativeCycleHop) {
+        for (int j = 0; j < length; j++) {
+            double d = dik + rowK[kFrom + j];
+            if (d < row[rowFrom + j]) {
+                row[rowFrom + j] = d;
+                next[nextFrom + j] = d == NEGATIVE_INFINITY ? negativeCycleHop : hop;
+            }
+        }
+    }
+
+    @Override
+    public void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length,
+                      short[] next, int nextFrom, int hop, int negativeCycleHop) {
+        for (int j = 0; j < length; j++) {
+            double d = dik + rowK[kFrom + j];
+            if (d < row[rowFrom + j]) {
+                row[rowFrom + j] = d;
+                next[nextFrom + j] = (short) (d == NEGATIVE_INFINITY ? negativeCycleHop : hop);
+            }
+        }
+    }
+}
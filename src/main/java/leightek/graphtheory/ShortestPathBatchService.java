@@ -0,0 +1,251 @@
+package leightek.graphtheory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers batches of point to point shortest path queries, and builds many to many distance tables, in parallel over
+ * one shared read-only graph. Each worker borrows a {@link DijkstraQueryContext} from a pool for the length of a batch
+ * and claims the queries a chunk at a time, so the workers stay busy however uneven the queries are and no search
+ * state is ever shared or reallocated.
+ *
+ * The workers run on an executor, by default a fixed pool with a thread per core. Any executor can be passed in,
+ * e.g. a virtual thread executor on JDK 21+; the number of workers, and so the number of contexts kept in memory,
+ * is bounded by the parallelism either way.
+ */
+public class ShortestPathBatchService implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 16; // the number of queries a worker claims at a time
+
+    private final int n; // the number of nodes in the graph
+    private final StaticGraph graph;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor; // shut the executor down on close if it was created here
+    private final int parallelism; // the number of workers per batch
+    private final ConcurrentLinkedQueue<DijkstraQueryContext> contexts = new ConcurrentLinkedQueue<>(); // idle contexts
+
+    public ShortestPathBatchService(StaticGraph graph) {
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShortestPathBatchService(StaticGraph graph, int parallelism) {
+        this(graph, Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "shortest-path-worker");
+            thread.setDaemon(true);
+            return thread;
+        }), parallelism, true);
+    }
+
+    /**
+     * Create a service running on an executor owned by the caller, it is not shut down on close
+     * @param graph         the graph, shared by all workers and never modified
+     * @param executor      the executor the workers run on
+     * @param parallelism   the number of workers per batch
+     */
+    public ShortestPathBatchService(StaticGraph graph, ExecutorService executor, int parallelism) {
+        this(graph, executor, parallelism, false);
+    }
+
+    private ShortestPathBatchService(StaticGraph graph, ExecutorService executor, int parallelism,
+                                     boolean ownsExecutor) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+        if (executor == null)
+            throw new IllegalArgumentException("Executor cannot be null!");
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("parallelism must be positive");
+
+        this.n = graph.getNumberOfNodes();
+        this.graph = graph;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Find the shortest distance of every (sources[i], targets[i]) pair
+     * @param sources   the start node of each query
+     * @param targets   the end node of each query
+     * @return the shortest distance of each query, Double.POSITIVE_INFINITY if the end node is unreachable
+     */
+    public double[] distances(int[] sources, int[] targets) {
+        double[] distances = new double[queryCount(sources, targets)];
+        run(sources, targets, distances, null);
+        return distances;
+    }
+
+    /**
+     * Find the shortest path of every (sources[i], targets[i]) pair
+     * @param sources   the start node of each query
+     * @param targets   the end node of each query
+     * @return the node indexes of the shortest path of each query, or else empty list if the end node is unreachable
+     */
+    public List<List<Integer>> paths(int[] sources, int[] targets) {
+        List<List<Integer>> paths = new ArrayList<>(Collections.nCopies(queryCount(sources, targets), null));
+        run(sources, targets, null, paths);
+        return paths;
+    }
+
+    /**
+     * Find the shortest distance and path of every (sources[i], targets[i]) pair in one pass
+     * @param sources     the start node of each query
+     * @param targets     the end node of each query
+     * @param distances   filled with the shortest distance of each query
+     * @param paths       filled with the shortest path of each query, replacing its contents
+     */
+    public void query(int[] sources, int[] targets, double[] distances, List<List<Integer>> paths) {
+        int count = queryCount(sources, targets);
+        if (distances == null || distances.length != count || paths == null)
+            throw new IllegalArgumentException("A result for every query is needed");
+
+        paths.clear();
+        paths.addAll(Collections.nCopies(count, null));
+        run(sources, targets, distances, paths);
+    }
+
+    /**
+     * Build the table of shortest distances from every source node to every target node. The sources are spread
+     * over the workers, each running a single one to many search per source that stops once all targets are settled.
+     * @param sources   the start nodes, one row each
+     * @param targets   the end nodes, one column each
+     * @return the matrix of distances, Double.POSITIVE_INFINITY where the target is unreachable
+     */
+    public double[][] distanceMatrix(int[] sources, int[] targets) {
+        if (sources == null || targets == null)
+            throw new IllegalArgumentException("sources and targets cannot be null");
+        nodesInBoundsOrThrow(sources);
+        nodesInBoundsOrThrow(targets);
+
+        double[][] matrix = new double[sources.length][];
+        run(sources.length, 1, (context, i) -> matrix[i] = context.oneToMany(sources[i], targets));
+        return matrix;
+    }
+
+    private void run(int[] sources, int[] targets, double[] distances, List<List<Integer>> paths) {
+        run(sources.length, CHUNK_SIZE, (context, i) -> {
+            double distance = context.dijkstra(sources[i], targets[i]);
+            if (distances != null)
+                distances[i] = distance;
+            if (paths != null)
+                paths.set(i, context.reconstructPath(sources[i], targets[i])); // reuses the search
+        });
+    }
+
+    // a unit of work run by a worker with the context it borrowed
+    private interface Task {
+        void run(DijkstraQueryContext context, int index);
+    }
+
+    /**
+     * Run the task for every index in [0, count) on the workers, which claim the indexes chunkSize at a time
+     */
+    private void run(int count, int chunkSize, Task task) {
+        AtomicInteger cursor = new AtomicInteger(); // the first index not claimed by a worker yet
+        int workers = Math.min(parallelism, (count + chunkSize - 1) / chunkSize);
+
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            futures.add(executor.submit(() -> {
+                DijkstraQueryContext context = borrowContext();
+                try {
+                    for (int first; (first = cursor.getAndAdd(chunkSize)) < count; ) {
+                        for (int i = first; i < Math.min(first + chunkSize, count); i++)
+                            task.run(context, i);
+                    }
+                } finally {
+                    contexts.offer(context);
+                }
+            }));
+        }
+
+        // waiting on every future also publishes the results written by the workers to this thread
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                cursor.set(count); // let the workers still running stop after their current chunk
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the queries", e);
+            } catch (ExecutionException e) {
+                cursor.set(count);
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private DijkstraQueryContext borrowContext() {
+        DijkstraQueryContext context = contexts.poll();
+        return context != null ? context : new DijkstraQueryContext(graph);
+    }
+
+    private int queryCount(int[] sources, int[] targets) {
+        if (sources == null || targets == null || sources.length != targets.length)
+            throw new IllegalArgumentException("sources and targets must be of the same length");
+
+        nodesInBoundsOrThrow(sources);
+        nodesInBoundsOrThrow(targets);
+        return sources.length;
+    }
+
+    // check up front, so a bad query fails the batch before any work is done
+    private void nodesInBoundsOrThrow(int[] nodes) {
+        for (int node : nodes) {
+            if (node < 0 || node >= n)
+                throw new IllegalArgumentException("Invalid node index");
+        }
+    }
+
+    /**
+     * Shut the executor down if the service created it
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor)
+            executor.shutdown();
+    }
+
+    public static void main(String[] args) {
+        int n = 20000, queries = 500;
+        Random random = new Random(42);
+        CsrGraph.Builder builder = CsrGraph.builder(n, 4 * n);
+        for (int i = 0; i < 4 * n; i++)
+            builder.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(100));
+        CsrGraph graph = builder.build();
+
+        int[] sources = new int[queries], targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(n);
+            targets[i] = random.nextInt(n);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new int[] {1, cores}) {
+            try (ShortestPathBatchService service = new ShortestPathBatchService(graph, threads)) {
+                service.distances(sources, targets); // warm up
+                long begin = System.nanoTime();
+                double[] distances = service.distances(sources, targets);
+                double seconds = (System.nanoTime() - begin) / 1e9;
+                System.out.printf("%d threads: %.0f queries/s, first distance %.1f\n", threads, queries / seconds,
+                        distances[0]);
+            }
+        }
+
+        try (ShortestPathBatchService service = new ShortestPathBatchService(graph)) {
+            System.out.println(service.paths(new int[] {sources[0]}, new int[] {targets[0]}).get(0));
+            double[][] matrix = service.distanceMatrix(Arrays.copyOf(sources, 4), Arrays.copyOf(targets, 4));
+            for (double[] row : matrix)
+                System.out.println(Arrays.toString(row));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package leightek.graphtheory;
+
+/**
+ * A read-only directed graph in Compressed Sparse Row order: the edges leaving node u have the consecutive edge ids
+ * [begin(u), end(u)). Implemented by the on-heap {@link CsrGraph} and the memory-mapped {@link MappedCsrGraph}, so
+ * the solvers accepting a StaticGraph run on either.
+ */
+public interface StaticGraph {
+
+    int getNumberOfNodes();
+
+    int getNumberOfEdges();
+
+    /**
+     * Get the first edge id of a node
+     * @param u the index of the node
+     * @return the id of the first edge leaving u
+     */
+    int begin(int u);
+
+    /**
+     * Get the end (exclusive) of the edge ids of a node
+     * @param u the index of the node
+     * @return one past the id of the last edge leaving u
+     */
+    int end(int u);
+
+    default int degree(int u) {
+        return end(u) - begin(u);
+    }
+
+    /**
+     * Get the end node of an edge
+     * @param e the edge id
+     * @return the index of the node the edge points to
+     */
+    int target(int e);
+
+    /**
+     * Get the weight of an edge
+     * @param e the edge id
+     * @return the weight of the edge, 1 if the graph is unweighted
+     */
+    double weight(int e);
+
+    boolean isWeighted();
+
+    /**
+     * Get the largest weight of a graph whose weights are all non negative integers, as the integer engines of
+     * {@link DijkstraQueryContext} need. It takes a pass over every weight, so the implementations compute it once
+     * @return the largest weight, 0 if there are no edges, or -1 if some weight is negative, past the int range or not
+     *         an integer
+     */
+    default long maxIntegerWeight() {
+        return DijkstraQueryContext.maxIntegerWeight(this);
+    }
+}
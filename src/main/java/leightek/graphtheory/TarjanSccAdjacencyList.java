@@ -10,6 +10,7 @@ public class TarjanSccAdjacencyList {
 
     private int n;
     private List<List<Integer>> graph;
+    private StaticGraph csr; // set instead of graph when built from a CSR graph
 
     private boolean solved;
     private int sccCount, id;
@@ -18,6 +19,7 @@ public class TarjanSccAdjacencyList {
     private int[] low;  // low-link value of the node, index as the node id
     private int[] sccs; // the array of Strongly Connected Components, index as the node id
     private Deque<Integer> stack;
+    private int[] sccStack, callStack, edgeAt; // explicit stacks of the iterative dfs on a CSR graph
 
     private static final int UNVISITED = -1;
 
@@ -29,6 +31,19 @@ public class TarjanSccAdjacencyList {
         this.graph = graph;
     }
 
+    /**
+     * Create a solver on a CSR graph. The dfs runs with explicit stacks, so the depth of the graph is not bounded by
+     * the thread stack size.
+     * @param graph the CSR graph
+     */
+    public TarjanSccAdjacencyList(StaticGraph graph) {
+        if (graph == null)
+            throw new IllegalArgumentException("Graph cannot be null!");
+
+        n = graph.getNumberOfNodes();
+        csr = graph;
+    }
+
     /**
      * Get Strongly Connected Component count
      * @return the number of SCCs
@@ -66,12 +81,23 @@ public class TarjanSccAdjacencyList {
             low = new int[n];
             sccs = new int[n];
             visited = new boolean[n];
-            stack = new ArrayDeque<>();
             Arrays.fill(ids, UNVISITED);
 
-            for (int i = 0; i < n; i++) {
-                if (ids[i] == UNVISITED)
-                    dfs(i);
+            if (csr != null) {
+                sccStack = new int[n];
+                callStack = new int[n];
+                edgeAt = new int[n];
+                for (int i = 0; i < n; i++) {
+                    if (ids[i] == UNVISITED)
+                        dfsCsr(i);
+                }
+                sccStack = callStack = edgeAt = null;
+            } else {
+                stack = new ArrayDeque<>();
+                for (int i = 0; i < n; i++) {
+                    if (ids[i] == UNVISITED)
+                        dfs(i);
+                }
             }
 
             solved = true;
@@ -137,6 +163,51 @@ public class TarjanSccAdjacencyList {
         }
     }
 
+    // Same as dfs but iterative: callStack holds the nodes on the dfs path and edgeAt the next edge to explore at
+    // each of them
+    private void dfsCsr(int start) {
+        int depth = 0, top = 0;
+        callStack[0] = start;
+        edgeAt[0] = csr.begin(start);
+        ids[start] = low[start] = id++;
+        sccStack[top++] = start;
+        visited[start] = true;
+
+        while (depth >= 0) {
+            int at = callStack[depth];
+
+            if (edgeAt[depth] < csr.end(at)) {
+                int to = csr.target(edgeAt[depth]++);
+                if (ids[to] == UNVISITED) {
+                    callStack[++depth] = to;
+                    edgeAt[depth] = csr.begin(to);
+                    ids[to] = low[to] = id++;
+                    sccStack[top++] = to;
+                    visited[to] = true;
+                } else if (visited[to]) {
+                    low[at] = Math.min(low[at], low[to]);
+                }
+                continue;
+            }
+
+            // empty the stack until back to root
+            if (ids[at] == low[at]) {
+                for (int node = sccStack[--top];; node = sccStack[--top]) {
+                    visited[node] = false;
+                    sccs[node] = sccCount;
+                    if (node == at)
+                        break;
+                }
+                sccCount++;
+            }
+
+            if (--depth >= 0 && visited[at]) {
+                int parent = callStack[depth];
+                low[parent] = Math.min(low[parent], low[at]);
+            }
+        }
+    }
+
     public static void main(String[] args) {
         int n = 8;
 
@@ -157,5 +228,8 @@ public class TarjanSccAdjacencyList {
 
         TarjanSccAdjacencyList tarjanSccAdjacencyList = new TarjanSccAdjacencyList(graph);
         printSccs(n, tarjanSccAdjacencyList.getSccCount(), tarjanSccAdjacencyList.getSccs());
+
+        TarjanSccAdjacencyList csrSolver = new TarjanSccAdjacencyList(CsrGraph.fromAdjacencyList(graph));
+        printSccs(n, csrSolver.getSccCount(), csrSolver.getSccs());
     }
 }
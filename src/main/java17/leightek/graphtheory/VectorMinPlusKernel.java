@@ -0,0 +1,62 @@
+package leightek.graphtheory;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The min-plus kernel on the JDK Vector API, loaded by {@link MinPlus} when the jdk.incubator.vector module is present
+ * (--add-modules jdk.incubator.vector). A whole vector of candidates is compared and blended at once.
+ *
+ * The loops writing next hops compare a whole vector too, and only a vector with some lane improved is relaxed again
+ * by the scalar loop, next hops included. Once a few k have run such vectors are rare, and on JDK 17 this beats
+ * blending the vector and writing the hops of its set lanes, or a masked store through a cast mask, by far.
+ *
+ * Built by the jdk17 profile from src/main/java17 into META-INF/versions/17 of the multi-release jar, so the JVMs
+ * before 17 never see it.
+ */
+final class VectorMinPlusKernel implements MinPlusKernel {
+
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+
+    private final ScalarMinPlusKernel scalar = new ScalarMinPlusKernel(); // for the tails and the improved vectors
+
+    @Override
+    public void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length) {
+        DoubleVector vik = DoubleVector.broadcast(D, dik);
+        int j = 0;
+        for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+            DoubleVector d = vik.add(DoubleVector.fromArray(D, rowK, kFrom + j));
+            DoubleVector current = DoubleVector.fromArray(D, row, rowFrom + j);
+            current.blend(d, d.lt(current)).intoArray(row, rowFrom + j);
+        }
+        scalar.relax(row, rowFrom + j, dik, rowK, kFrom + j, length - j);
+    }
+
+    @Override
+    public void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length,
+                      int[] next, int nextFrom, int hop, int negativeCycleHop) {
+        DoubleVector vik = DoubleVector.broadcast(D, dik);
+        int j = 0;
+        for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+            DoubleVector d = vik.add(DoubleVector.fromArray(D, rowK, kFrom + j));
+            if (d.lt(DoubleVector.fromArray(D, row, rowFrom + j)).anyTrue())
+                scalar.relax(row, rowFrom + j, dik, rowK, kFrom + j, D.length(), next, nextFrom + j, hop,
+                        negativeCycleHop);
+        }
+        scalar.relax(row, rowFrom + j, dik, rowK, kFrom + j, length - j, next, nextFrom + j, hop, negativeCycleHop);
+    }
+
+    @Override
+    public void relax(double[] row, int rowFrom, double dik, double[] rowK, int kFrom, int length,
+                      short[] next, int nextFrom, int hop, int negativeCycleHop) {
+        DoubleVector vik = DoubleVector.broadcast(D, dik);
+        int j = 0;
+        for (int bound = D.loopBound(length); j < bound; j += D.length()) {
+            DoubleVector d = vik.add(DoubleVector.fromArray(D, rowK, kFrom + j));
+            if (d.lt(DoubleVector.fromArray(D, row, rowFrom + j)).anyTrue())
+                scalar.relax(row, rowFrom + j, dik, rowK, kFrom + j, D.length(), next, nextFrom + j, hop,
+                        negativeCycleHop);
+        }
+        scalar.relax(row, rowFrom + j, dik, rowK, kFrom + j, length - j, next, nextFrom + j, hop, negativeCycleHop);
+    }
+}